@@ -2,24 +2,26 @@ package GUI;
 
 import Models.Admin;
 import Models.Product;
-import Store.ECommerceStore;
+import Store.AsyncECommerceStore;
+import Store.ImportReport;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
-import java.util.Vector;
+import java.nio.file.Path;
 
 public class AdminPanel extends JPanel {
     private ECommerceGUI parent;
     private Admin currentUser;
     private JTable productTable;
-    private DefaultTableModel tableModel;
+    private PagedProductTableModel tableModel;
     
     // Product form components
     private JTextField nameField;
     private JTextField priceField;
     private JTextField quantityField;
     private JTextField idField;
+    private JButton importButton;
     
     public AdminPanel(ECommerceGUI parent) {
         this.parent = parent;
@@ -45,16 +47,26 @@ public class AdminPanel extends JPanel {
         
         // Button panel at the bottom
         JPanel buttonPanel = new JPanel();
+        importButton = new JButton("Import Products...");
         JButton logoutButton = new JButton("Logout");
+        buttonPanel.add(importButton);
         buttonPanel.add(logoutButton);
         
+        importButton.addActionListener(e -> importProducts());
+        
         logoutButton.addActionListener(e -> {
+            tableModel.cancel();
             parent.showPanel("login");
         });
         
+        // Product management and live performance figures on separate tabs
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Products", splitPane);
+        tabs.addTab("Performance", new PerformancePanel());
+        
         // Add all panels to main panel
         add(titlePanel, BorderLayout.NORTH);
-        add(splitPane, BorderLayout.CENTER);
+        add(tabs, BorderLayout.CENTER);
         add(buttonPanel, BorderLayout.SOUTH);
     }
     
@@ -62,14 +74,8 @@ public class AdminPanel extends JPanel {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createTitledBorder("Product List"));
         
-        // Create table model with column names
-        String[] columnNames = {"ID", "Name", "Price", "Quantity"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table non-editable
-            }
-        };
+        // Create table model with column names; rows are loaded page by page
+        tableModel = new PagedProductTableModel("ID", "Name", "Price", "Quantity");
         
         // Create table and scroll pane
         productTable = new JTable(tableModel);
@@ -78,11 +84,13 @@ public class AdminPanel extends JPanel {
         // Add selection listener to populate form when row is selected
         productTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting() && productTable.getSelectedRow() != -1) {
-                int row = productTable.getSelectedRow();
-                idField.setText(tableModel.getValueAt(row, 0).toString());
-                nameField.setText(tableModel.getValueAt(row, 1).toString());
-                priceField.setText(tableModel.getValueAt(row, 2).toString().replace("$", ""));
-                quantityField.setText(tableModel.getValueAt(row, 3).toString());
+                Product product = tableModel.getProductAt(productTable.getSelectedRow());
+                if (product != null) {
+                    idField.setText(String.valueOf(product.getId()));
+                    nameField.setText(product.getName());
+                    priceField.setText(String.valueOf(product.getPrice()));
+                    quantityField.setText(String.valueOf(product.getQuantity()));
+                }
             }
         });
         
@@ -171,11 +179,12 @@ public class AdminPanel extends JPanel {
                     return;
                 }
                 
-                ECommerceStore.addProduct(name, price, quantity);
-                JOptionPane.showMessageDialog(parent, "Product added successfully!", 
-                        "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshProductTable();
-                clearForm();
+                EdtDispatcher.deliver(AsyncECommerceStore.addProduct(name, price, quantity), done -> {
+                    JOptionPane.showMessageDialog(parent, "Product added successfully!", 
+                            "Success", JOptionPane.INFORMATION_MESSAGE);
+                    refreshProductTable();
+                    clearForm();
+                });
                 
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(parent, "Price and quantity must be numbers", 
@@ -209,16 +218,17 @@ public class AdminPanel extends JPanel {
                     return;
                 }
                 
-                boolean success = ECommerceStore.updateProduct(id, name, price, quantity);
-                if (success) {
-                    JOptionPane.showMessageDialog(parent, "Product updated successfully!", 
-                            "Success", JOptionPane.INFORMATION_MESSAGE);
-                    refreshProductTable();
-                    clearForm();
-                } else {
-                    JOptionPane.showMessageDialog(parent, "Product not found", 
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                EdtDispatcher.deliver(AsyncECommerceStore.updateProduct(id, name, price, quantity), success -> {
+                    if (success) {
+                        JOptionPane.showMessageDialog(parent, "Product updated successfully!", 
+                                "Success", JOptionPane.INFORMATION_MESSAGE);
+                        refreshProductTable();
+                        clearForm();
+                    } else {
+                        JOptionPane.showMessageDialog(parent, "Product not found", 
+                                "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
                 
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(parent, "Price and quantity must be numbers", 
@@ -240,11 +250,12 @@ public class AdminPanel extends JPanel {
                     "Confirm Removal", JOptionPane.YES_NO_OPTION);
             
             if (confirm == JOptionPane.YES_OPTION) {
-                ECommerceStore.removeProduct(id);
-                JOptionPane.showMessageDialog(parent, "Product removed successfully!", 
-                        "Success", JOptionPane.INFORMATION_MESSAGE);
-                refreshProductTable();
-                clearForm();
+                EdtDispatcher.deliver(AsyncECommerceStore.removeProduct(id), done -> {
+                    JOptionPane.showMessageDialog(parent, "Product removed successfully!", 
+                            "Success", JOptionPane.INFORMATION_MESSAGE);
+                    refreshProductTable();
+                    clearForm();
+                });
             }
         });
         
@@ -261,6 +272,58 @@ public class AdminPanel extends JPanel {
         return panel;
     }
     
+    private void importProducts() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Product files (CSV, JSON)", "csv", "json"));
+        if (chooser.showOpenDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        
+        // Non-modal progress window; the import itself runs in the background
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        JLabel statusLabel = new JLabel("Reading " + file.getFileName() + "...");
+        JPanel content = new JPanel(new BorderLayout(5, 5));
+        content.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        content.add(statusLabel, BorderLayout.NORTH);
+        content.add(progressBar, BorderLayout.CENTER);
+        JDialog progressDialog = new JDialog(parent, "Importing Products", false);
+        progressDialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        progressDialog.add(content);
+        progressDialog.setSize(450, 110);
+        progressDialog.setLocationRelativeTo(parent);
+        progressDialog.setVisible(true);
+        importButton.setEnabled(false);
+        
+        EdtDispatcher.deliver(AsyncECommerceStore.importProducts(file, report -> EdtDispatcher.EDT.execute(() -> {
+            progressBar.setValue(report.getPercentDone());
+            statusLabel.setText(report.toString());
+        })), report -> {
+            progressDialog.dispose();
+            importButton.setEnabled(true);
+            refreshProductTable();
+            showImportSummary(report);
+        }, error -> {
+            progressDialog.dispose();
+            importButton.setEnabled(true);
+            refreshProductTable(); // Batches committed before the failure are kept
+            JOptionPane.showMessageDialog(parent, "Import failed: " + error.getMessage(),
+                    "Import Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+    
+    private void showImportSummary(ImportReport report) {
+        String message = String.format("Imported %,d products in %.1f seconds.",
+                report.getImported(), report.getElapsedMs() / 1000.0);
+        if (report.getRejected() > 0) {
+            message += String.format("%n%,d rows were rejected; see %s for the reasons.",
+                    report.getRejected(), report.getRejectFile());
+        }
+        JOptionPane.showMessageDialog(parent, message, "Import Finished",
+                report.getRejected() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+    }
+    
     private void clearForm() {
         idField.setText("");
         nameField.setText("");
@@ -270,22 +333,8 @@ public class AdminPanel extends JPanel {
     }
     
     public void refreshProductTable() {
-        // Clear existing data
-        tableModel.setRowCount(0);
-        
-        // Get product list from store
-        java.util.List<Product> products = ECommerceStore.getAllProducts();
-        
-        if (products != null) {
-            for (Product product : products) {
-                Vector<Object> row = new Vector<>();
-                row.add(product.getId());
-                row.add(product.getName());
-                row.add("$" + product.getPrice());
-                row.add(product.getQuantity());
-                tableModel.addRow(row);
-            }
-        }
+        // Only the row count is fetched here; visible pages load as the table paints
+        tableModel.refresh();
     }
     
     public void setCurrentUser(Admin user) {
@@ -1,10 +1,14 @@
 package GUI;
 
 import Models.Customer;
+import Models.Order;
 import Models.Product;
-import Store.ECommerceStore;
+import Store.AsyncECommerceStore;
+import Store.StockChangeBus;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.ArrayList;
@@ -12,6 +16,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
 
 public class CustomerPanel extends JPanel {
     private ECommerceGUI parent;
@@ -21,16 +26,53 @@ public class CustomerPanel extends JPanel {
     private Map<Integer, Integer> originalQuantities = new HashMap<>();
     
     private JTable productTable;
-    private DefaultTableModel productTableModel;
+    private PagedProductTableModel productTableModel;
+    
+    private static final int SEARCH_DELAY_MS = 150;
+    private static final int SEARCH_LIMIT = 200;
+    private JTextField searchField;
+    private Timer searchTimer;
+    // Bumped per search so a slow, older result never replaces a newer one
+    private int searchGeneration;
     
     private JTable cartTable;
     private DefaultTableModel cartTableModel;
     
     private JLabel totalLabel;
+    private JButton checkoutButton;
+    // True while a checkout or cart release runs: the cart's items are spoken for
+    // and must not be removed or released again. Only touched on the EDT
+    private boolean cartBusy;
+    
+    // Stock changes pushed by the store are applied at most once per frame
+    private static final int REPAINT_INTERVAL_MS = 16;
+    private final Timer stockRepaintTimer = new Timer(REPAINT_INTERVAL_MS, e -> applyStockChanges());
+    // Filled on store threads and drained on the EDT, guarded by pendingStock
+    private final Map<Integer, Product> pendingStock = new HashMap<>();
+    private boolean pendingCatalogChange;
+    private boolean repaintScheduled;
+    private final StockChangeBus.Listener stockListener = new StockChangeBus.Listener() {
+        @Override
+        public void productChanged(Product product) {
+            synchronized (pendingStock) {
+                pendingStock.put(product.getId(), product);
+                scheduleStockRepaint();
+            }
+        }
+        
+        @Override
+        public void catalogChanged() {
+            synchronized (pendingStock) {
+                pendingCatalogChange = true;
+                scheduleStockRepaint();
+            }
+        }
+    };
     
     public CustomerPanel(ECommerceGUI parent) {
         this.parent = parent;
         setLayout(new BorderLayout());
+        stockRepaintTimer.setRepeats(false);
         
         // Create title panel
         JPanel titlePanel = new JPanel();
@@ -59,8 +101,19 @@ public class CustomerPanel extends JPanel {
                 "Are you sure you want to logout? Your cart will be cleared.", 
                 "Confirm Logout", JOptionPane.YES_NO_OPTION);
             
-            if (confirm == JOptionPane.YES_OPTION) {
+            if (confirm == JOptionPane.YES_OPTION && !refuseWhileCartBusy()) {
+                productTableModel.cancel();
+                StockChangeBus.unsubscribe(stockListener);
+                // Give the reserved stock back before dropping the cart
+                EdtDispatcher.deliver(releaseCart(), released -> {
+                    if (!released) {
+                        JOptionPane.showMessageDialog(parent,
+                                "Some cart items could not be returned to stock.",
+                                "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
                 cart.clear();
+                originalQuantities.clear();
                 updateCartTable();
                 parent.showPanel("login");
             }
@@ -75,14 +128,8 @@ public class CustomerPanel extends JPanel {
     private JPanel createProductsPanel() {
         JPanel panel = new JPanel(new BorderLayout());
         
-        // Create table model with column names
-        String[] columnNames = {"ID", "Name", "Price", "Stock"};
-        productTableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table non-editable
-            }
-        };
+        // Create table model with column names; rows are loaded page by page
+        productTableModel = new PagedProductTableModel("ID", "Name", "Price", "Stock");
         
         // Create table and scroll pane
         productTable = new JTable(productTableModel);
@@ -90,6 +137,26 @@ public class CustomerPanel extends JPanel {
         
         panel.add(scrollPane, BorderLayout.CENTER);
         
+        // Search box; typing restarts a short timer so a query runs once the user pauses
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        searchField = new JTextField();
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> runSearch());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { searchTimer.restart(); }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) { searchTimer.restart(); }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) { searchTimer.restart(); }
+        });
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        panel.add(searchPanel, BorderLayout.NORTH);
+        
         // Create button panel
         JPanel buttonPanel = new JPanel();
         JButton addToCartButton = new JButton("Add to Cart");
@@ -103,19 +170,23 @@ public class CustomerPanel extends JPanel {
                 return;
             }
             
-            int id = Integer.parseInt(productTableModel.getValueAt(selectedRow, 0).toString());
-            int stock = Integer.parseInt(productTableModel.getValueAt(selectedRow, 3).toString());
+            Product selected = productTableModel.getProductAt(selectedRow);
+            if (selected == null) {
+                return; // Row still loading
+            }
+            int id = selected.getId();
             
-            if (stock <= 0) {
+            if (selected.getQuantity() <= 0) {
                 JOptionPane.showMessageDialog(parent, "This product is out of stock", 
                         "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
             
-            Product product = ECommerceStore.getProductById(id);
-            if (product != null) {
-                addProductToCart(product);
-            }
+            EdtDispatcher.deliver(AsyncECommerceStore.getProductById(id), product -> {
+                if (product != null) {
+                    addProductToCart(product);
+                }
+            });
         });
         
         refreshButton.addActionListener(e -> refreshProductTable());
@@ -159,7 +230,7 @@ public class CustomerPanel extends JPanel {
         JPanel buttonPanel = new JPanel();
         JButton removeButton = new JButton("Remove from Cart");
         JButton clearButton = new JButton("Clear Cart");
-        JButton checkoutButton = new JButton("Checkout");
+        checkoutButton = new JButton("Checkout");
         
         removeButton.addActionListener(e -> {
             int selectedRow = cartTable.getSelectedRow();
@@ -169,27 +240,24 @@ public class CustomerPanel extends JPanel {
                 return;
             }
             
+            if (refuseWhileCartBusy()) {
+                return;
+            }
+            
             // Get the product being removed
             Product removedProduct = cart.get(selectedRow);
             
             // Remove from cart
             cart.remove(selectedRow);
             
-            // Restore one quantity to the product in inventory
-            Product inventoryProduct = ECommerceStore.getProductById(removedProduct.getId());
-            if (inventoryProduct != null) {
-                int newQuantity = inventoryProduct.getQuantity() + 1;
-                ECommerceStore.updateProduct(
-                    inventoryProduct.getId(), 
-                    inventoryProduct.getName(), 
-                    inventoryProduct.getPrice(), 
-                    newQuantity
-                );
-            }
-            
-            // Update tables
             updateCartTable();
-            refreshProductTable();
+            
+            // Restore one quantity to the product in inventory; the stock column follows by itself
+            EdtDispatcher.deliver(AsyncECommerceStore.release(removedProduct.getId(), 1), released -> {
+                if (!released) {
+                    System.err.println("Failed to restore stock for product " + removedProduct.getId());
+                }
+            });
         });
         
         clearButton.addActionListener(e -> {
@@ -203,44 +271,26 @@ public class CustomerPanel extends JPanel {
                     "Are you sure you want to clear your cart?", 
                     "Confirm Clear", JOptionPane.YES_NO_OPTION);
             
-            if (confirm == JOptionPane.YES_OPTION) {
-                // Restore quantities to database for all products in cart
-                Map<Integer, Integer> productCounts = new HashMap<>();
-                
-                // Count how many of each product is in the cart
-                for (Product p: cart) {
-                    int id = p.getId();
-                    productCounts.put(id, productCounts.getOrDefault(id, 0) + 1);
-                }
-                
-                // Restore quantities to the database
-                for (Map.Entry<Integer, Integer> entry: productCounts.entrySet()) {
-                    int productId = entry.getKey();
-                    int count = entry.getValue();
-                    
-                    Product product = ECommerceStore.getProductById(productId);
-                    if (product != null) {
-                        // Increase the quantity by the count of this product in cart
-                        int newQuantity = product.getQuantity() + count;
-                        ECommerceStore.updateProduct(
-                            productId, 
-                            product.getName(), 
-                            product.getPrice(), 
-                            newQuantity
-                        );
+            if (confirm == JOptionPane.YES_OPTION && !refuseWhileCartBusy()) {
+                // Restore quantities to database for all products in cart; the cart
+                // is only emptied once the stock is back, so a failure keeps it
+                List<Product> releasing = new ArrayList<>(cart);
+                cartBusy = true;
+                EdtDispatcher.deliver(releaseCart(), released -> {
+                    cartBusy = false;
+                    if (!released) {
+                        JOptionPane.showMessageDialog(parent,
+                                "Could not return the cart items to stock. Your cart was kept, please try again.",
+                                "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
                     }
-                }
-                
-                // Clear cart
-                cart.clear();
-                originalQuantities.clear();
-                
-                // Update tables
-                updateCartTable();
-                refreshProductTable();
-                
-                JOptionPane.showMessageDialog(parent, "Cart cleared successfully!", 
-                        "Cart Cleared", JOptionPane.INFORMATION_MESSAGE);
+                    // Items added while the release ran stay in the cart
+                    releasing.forEach(cart::remove);
+                    originalQuantities.keySet().retainAll(cartCounts().keySet());
+                    updateCartTable();
+                    JOptionPane.showMessageDialog(parent, "Cart cleared successfully!", 
+                            "Cart Cleared", JOptionPane.INFORMATION_MESSAGE);
+                });
             }
         });
         
@@ -255,21 +305,21 @@ public class CustomerPanel extends JPanel {
                     "Proceed to checkout? This will complete your order.", 
                     "Confirm Checkout", JOptionPane.YES_NO_OPTION);
             
-            if (confirm == JOptionPane.YES_OPTION) {
-                // Calculate total
-                double total = cart.stream().mapToDouble(Product::getPrice).sum();
-                
-                // Save the updated quantities to database
-                ECommerceStore.saveProducts();
-                
-                JOptionPane.showMessageDialog(parent, 
-                        "Order placed successfully!\nTotal: $" + String.format("%.2f", total), 
-                        "Checkout Complete", JOptionPane.INFORMATION_MESSAGE);
-                
-                // Clear cart and original quantities map
-                cart.clear();
-                originalQuantities.clear();
-                updateCartTable();
+            if (confirm == JOptionPane.YES_OPTION && !refuseWhileCartBusy()) {
+                // Record the order; stock was already reserved when items were added.
+                // Items added while it runs are not part of it and stay in the cart
+                List<Product> ordered = new ArrayList<>(cart);
+                cartBusy = true;
+                checkoutButton.setEnabled(false);
+                EdtDispatcher.deliver(AsyncECommerceStore.placeOrder(currentUser.getUsername(), cartCounts()), 
+                        order -> completeCheckout(order, ordered), 
+                        error -> {
+                            cartBusy = false;
+                            checkoutButton.setEnabled(true);
+                            JOptionPane.showMessageDialog(parent, 
+                                    "Checkout failed: " + error.getMessage() + "\nYour cart has been kept.", 
+                                    "Checkout Error", JOptionPane.ERROR_MESSAGE);
+                        });
             }
         });
         
@@ -284,23 +334,77 @@ public class CustomerPanel extends JPanel {
         return panel;
     }
     
+    private void completeCheckout(Order order, List<Product> ordered) {
+        cartBusy = false;
+        checkoutButton.setEnabled(true);
+        JOptionPane.showMessageDialog(parent, 
+                "Order #" + order.getId() + " placed successfully!\nTotal: $" 
+                        + String.format("%.2f", order.getTotal()), 
+                "Checkout Complete", JOptionPane.INFORMATION_MESSAGE);
+        
+        // Take the ordered items out of the cart and forget their original quantities
+        ordered.forEach(cart::remove);
+        originalQuantities.keySet().retainAll(cartCounts().keySet());
+        updateCartTable();
+    }
+    
+    private boolean refuseWhileCartBusy() {
+        if (cartBusy) {
+            JOptionPane.showMessageDialog(parent, "Please wait, your cart is being updated.", 
+                    "Information", JOptionPane.INFORMATION_MESSAGE);
+        }
+        return cartBusy;
+    }
+    
+    // Called with pendingStock held
+    private void scheduleStockRepaint() {
+        if (!repaintScheduled) {
+            repaintScheduled = true;
+            SwingUtilities.invokeLater(stockRepaintTimer::start);
+        }
+    }
+    
+    private void applyStockChanges() {
+        Map<Integer, Product> changes;
+        boolean catalogChanged;
+        synchronized (pendingStock) {
+            changes = new HashMap<>(pendingStock);
+            pendingStock.clear();
+            catalogChanged = pendingCatalogChange;
+            pendingCatalogChange = false;
+            repaintScheduled = false;
+        }
+        if (catalogChanged) {
+            // Rows may have shifted; reload the visible pages
+            refreshProductTable();
+        } else if (!changes.isEmpty()) {
+            productTableModel.updateProducts(changes);
+        }
+    }
+    
     public void refreshProductTable() {
-        // Clear existing data
-        productTableModel.setRowCount(0);
-        
-        // Get product list from store - this refreshes the products from the database
-        List<Product> products = ECommerceStore.getAllProducts();
-        
-        if (products != null) {
-            for (Product product : products) {
-                Vector<Object> row = new Vector<>();
-                row.add(product.getId());
-                row.add(product.getName());
-                row.add("$" + product.getPrice());
-                row.add(product.getQuantity());
-                productTableModel.addRow(row);
-            }
+        if (!searchField.getText().trim().isEmpty()) {
+            // Pick up catalog changes first, then show the refreshed results
+            EdtDispatcher.deliver(AsyncECommerceStore.syncCatalog(), done -> runSearch());
+            return;
         }
+        // Only the row count is fetched here; visible pages load as the table paints
+        productTableModel.refresh();
+    }
+    
+    private void runSearch() {
+        searchTimer.stop();
+        String query = searchField.getText().trim();
+        int generation = ++searchGeneration;
+        if (query.isEmpty()) {
+            productTableModel.clearSearchResults();
+            return;
+        }
+        EdtDispatcher.deliver(AsyncECommerceStore.searchProducts(query, SEARCH_LIMIT), results -> {
+            if (generation == searchGeneration) {
+                productTableModel.showSearchResults(results);
+            }
+        });
     }
     
     private void updateCartTable() {
@@ -321,9 +425,38 @@ public class CustomerPanel extends JPanel {
         totalLabel.setText("Total: $" + String.format("%.2f", total));
     }
     
+    /**
+     * Returns every reserved unit in the cart to stock in one batch; the caller
+     * decides what happens to the cart.
+     */
+    private CompletableFuture<Boolean> releaseCart() {
+        Map<Integer, Integer> productCounts = cartCounts();
+        
+        CompletableFuture<Boolean> released = AsyncECommerceStore.adjustStock(productCounts);
+        EdtDispatcher.deliver(released, ok -> {
+            if (!ok) {
+                System.err.println("Failed to restore stock for cart items: " + productCounts);
+            }
+        });
+        return released;
+    }
+    
+    // Count how many of each product is in the cart
+    private Map<Integer, Integer> cartCounts() {
+        Map<Integer, Integer> productCounts = new HashMap<>();
+        for (Product p : cart) {
+            productCounts.merge(p.getId(), 1, Integer::sum);
+        }
+        return productCounts;
+    }
+    
     public void setCurrentUser(Customer user) {
         this.currentUser = user;
+        searchField.setText("");
+        StockChangeBus.subscribe(stockListener);
         refreshProductTable();
+        // Load the in-memory catalog now so the first search does not wait for it
+        AsyncECommerceStore.syncCatalog();
         cart.clear();
         originalQuantities.clear();
         updateCartTable();
@@ -336,22 +469,32 @@ public class CustomerPanel extends JPanel {
             originalQuantities.put(product.getId(), product.getQuantity());
         }
         
-        // Decrement product quantity in database
-        int newQuantity = product.getQuantity() - 1;
-        boolean updated = ECommerceStore.updateProduct(
-            product.getId(), product.getName(), product.getPrice(), newQuantity);
-        
-        if (updated) {
-            // Add to cart
-            cart.add(product);
-            // Update tables
-            updateCartTable();
-            refreshProductTable();
-            JOptionPane.showMessageDialog(this, "Product added to cart!", 
-                "Success", JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            JOptionPane.showMessageDialog(this, "Failed to update product quantity.", 
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        // Reserve one unit; the database refuses if someone else took the last one
+        EdtDispatcher.deliver(AsyncECommerceStore.reserve(product.getId(), 1), result -> {
+            switch (result) {
+                case RESERVED -> {
+                    // Add to cart
+                    cart.add(product);
+                    // The stock column is updated by the change the reservation publishes
+                    updateCartTable();
+                    JOptionPane.showMessageDialog(this, "Product added to cart!", 
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                }
+                case INSUFFICIENT_STOCK, SOLD_OUT -> {
+                    JOptionPane.showMessageDialog(this, "Sorry, this product just went out of stock.", 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                case THROTTLED -> JOptionPane.showMessageDialog(this,
+                        "This product is in high demand. Please try again in a moment.",
+                        "Busy", JOptionPane.WARNING_MESSAGE);
+                case UNKNOWN_PRODUCT -> {
+                    refreshProductTable();
+                    JOptionPane.showMessageDialog(this, "This product is no longer available.", 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                default -> JOptionPane.showMessageDialog(this, "Failed to update product quantity.", 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -2,18 +2,12 @@ package GUI;
 
 import Models.Admin;
 import Models.Customer;
-import Models.User;
-import utils.DatabaseConnection;
+import Store.AsyncECommerceStore;
 
 import javax.swing.*;
 import java.awt.*;
-import java.sql.*;
-import java.util.ArrayList;
-import java.util.List;
 
 public class ECommerceGUI extends JFrame {
-    private static List<User> users = new ArrayList<>();
-    
     private CardLayout cardLayout;
     private JPanel mainPanel;
     
@@ -52,13 +46,8 @@ public class ECommerceGUI extends JFrame {
         // Add main panel to frame
         add(mainPanel);
         
-        // Load users
-        loadUsers();
-        
-        // Add default admin if not present
-        if (users.stream().noneMatch(u -> u instanceof Admin)) {
-            ensureDefaultAdmin();
-        }
+        // Accounts are looked up at login; only make sure an admin exists
+        ensureDefaultAdmin();
     }
     
     public void showPanel(String panelName) {
@@ -66,128 +55,44 @@ public class ECommerceGUI extends JFrame {
     }
     
     public void loginUser(String username, String password, String type) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT * FROM users WHERE username = ? AND password = ? AND user_type = ?")) {
-            
-            stmt.setString(1, username);
-            stmt.setString(2, password);
-            stmt.setString(3, type);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    if (type.equals("admin")) {
-                        Admin admin = new Admin(username, password);
-                        adminPanel.setCurrentUser(admin);
-                        showPanel("admin");
-                    } else if (type.equals("customer")) {
-                        Customer customer = new Customer(username, password);
-                        customerPanel.setCurrentUser(customer);
-                        showPanel("customer");
-                    }
-                    return;
-                }
+        // Authenticate off the EDT so the window keeps painting while the query runs
+        EdtDispatcher.deliver(AsyncECommerceStore.authenticate(username, password, type), user -> {
+            if (user instanceof Admin) {
+                adminPanel.setCurrentUser((Admin) user);
+                showPanel("admin");
+            } else if (user instanceof Customer) {
+                customerPanel.setCurrentUser((Customer) user);
+                showPanel("customer");
+            } else {
+                JOptionPane.showMessageDialog(this, "Login failed. Please check your credentials.", 
+                        "Login Error", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (SQLException e) {
-            System.err.println("Error logging in user");
-            e.printStackTrace();
-        }
-        
-        JOptionPane.showMessageDialog(this, "Login failed. Please check your credentials.", 
-                "Login Error", JOptionPane.ERROR_MESSAGE);
+        });
     }
     
     public void registerCustomer(String username, String password) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(
-                 "SELECT COUNT(*) FROM users WHERE username = ?")) {
-            
-            checkStmt.setString(1, username);
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                rs.next();
-                if (rs.getInt(1) > 0) {
-                    JOptionPane.showMessageDialog(this, "Username already exists. Please choose another.",
-                            "Registration Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-            }
-            
-            try (PreparedStatement insertStmt = conn.prepareStatement(
-                     "INSERT INTO users (username, password, user_type) VALUES (?, ?, ?)")) {
-                
-                insertStmt.setString(1, username);
-                insertStmt.setString(2, password);
-                insertStmt.setString(3, "customer");
-                
-                int affectedRows = insertStmt.executeUpdate();
-                
-                if (affectedRows > 0) {
-                    Customer newCustomer = new Customer(username, password);
-                    users.add(newCustomer);
+        EdtDispatcher.deliver(AsyncECommerceStore.registerCustomer(username, password), result -> {
+            switch (result) {
+                case REGISTERED -> {
                     JOptionPane.showMessageDialog(this, "Registration successful! You can now log in.",
                             "Registration Success", JOptionPane.INFORMATION_MESSAGE);
                     showPanel("login");
-                } else {
-                    JOptionPane.showMessageDialog(this, "Registration failed. Please try again.",
-                            "Registration Error", JOptionPane.ERROR_MESSAGE);
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error registering customer");
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, "Registration failed due to a database error.",
-                    "Registration Error", JOptionPane.ERROR_MESSAGE);
-        }
-    }
-    
-    private void loadUsers() {
-        users.clear();
-        
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM users")) {
-            
-            while (rs.next()) {
-                String username = rs.getString("username");
-                String password = rs.getString("password");
-                String userType = rs.getString("user_type");
-                
-                if (userType.equals("admin")) {
-                    users.add(new Admin(username, password));
-                } else if (userType.equals("customer")) {
-                    users.add(new Customer(username, password));
                 }
+                case USERNAME_TAKEN -> JOptionPane.showMessageDialog(this, 
+                        "Username already exists. Please choose another.",
+                        "Registration Error", JOptionPane.ERROR_MESSAGE);
+                default -> JOptionPane.showMessageDialog(this, "Registration failed. Please try again.",
+                        "Registration Error", JOptionPane.ERROR_MESSAGE);
             }
-        } catch (SQLException e) {
-            System.err.println("Error loading users from database");
-            e.printStackTrace();
-        }
+        });
     }
     
     private void ensureDefaultAdmin() {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement checkStmt = conn.prepareStatement(
-                 "SELECT COUNT(*) FROM users WHERE user_type = 'admin'")) {
-            
-            try (ResultSet rs = checkStmt.executeQuery()) {
-                rs.next();
-                if (rs.getInt(1) == 0) {
-                    try (PreparedStatement insertStmt = conn.prepareStatement(
-                             "INSERT INTO users (username, password, user_type) VALUES (?, ?, ?)")) {
-                        
-                        insertStmt.setString(1, "admin");
-                        insertStmt.setString(2, "admin123");
-                        insertStmt.setString(3, "admin");
-                        
-                        insertStmt.executeUpdate();
-                        users.add(new Admin("admin", "admin123"));
-                    }
-                }
+        EdtDispatcher.deliver(AsyncECommerceStore.ensureDefaultAdmin(), admin -> {
+            if (admin != null) {
+                System.out.println("Created the default admin account");
             }
-        } catch (SQLException e) {
-            System.err.println("Error ensuring default admin");
-            e.printStackTrace();
-        }
+        });
     }
     
     public static void main(String[] args) {
@@ -0,0 +1,42 @@
+package GUI;
+
+import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Delivers results of background store calls back on the Event Dispatch Thread.
+ */
+final class EdtDispatcher {
+    static final Executor EDT = SwingUtilities::invokeLater;
+
+    private EdtDispatcher() { }
+
+    /**
+     * Runs onSuccess or onError on the EDT when the future completes. Cancelled
+     * futures are ignored, since cancellation means the result is no longer wanted.
+     */
+    static <T> void deliver(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+        future.whenCompleteAsync((result, error) -> {
+            if (error == null) {
+                onSuccess.accept(result);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (!(cause instanceof CancellationException)) {
+                onError.accept(cause);
+            }
+        }, EDT);
+    }
+
+    static <T> void deliver(CompletableFuture<T> future, Consumer<T> onSuccess) {
+        deliver(future, onSuccess, error -> {
+            System.err.println("Background store call failed");
+            error.printStackTrace();
+        });
+    }
+}
@@ -0,0 +1,205 @@
+package GUI;
+
+import Models.Product;
+import Store.AsyncECommerceStore;
+import Store.ProductOrder;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Product table model that loads rows lazily, one page at a time, as the table
+ * asks for them while painting the visible rows.
+ *
+ * Only a bounded number of pages is kept, so memory use and refresh cost do not
+ * grow with the catalog. All state is touched on the EDT only.
+ *
+ * While search results are shown the model holds just those rows instead.
+ */
+class PagedProductTableModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 16;
+
+    private final String[] columnNames;
+
+    // Least recently used page is evicted first
+    private final Map<Integer, List<Product>> pages = new LinkedHashMap<>(MAX_CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Product>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    private int rowCount;
+    // Bumped on every refresh so page loads started before it are discarded
+    private int generation;
+    private CompletableFuture<Integer> pendingCount;
+    // Non-null while the table shows a search result instead of the catalog
+    private List<Product> searchResults;
+
+    PagedProductTableModel(String... columnNames) {
+        this.columnNames = columnNames;
+    }
+
+    /**
+     * Re-reads the catalog size and drops cached pages; visible pages reload on demand.
+     */
+    void refresh() {
+        cancel();
+        int refreshGeneration = ++generation;
+        pendingCount = AsyncECommerceStore.countProducts();
+        EdtDispatcher.deliver(pendingCount, count -> {
+            if (refreshGeneration != generation) {
+                return;
+            }
+            pages.clear();
+            loading.clear();
+            rowCount = count;
+            fireTableDataChanged();
+        });
+    }
+
+    void showSearchResults(List<Product> results) {
+        searchResults = results;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Returns to browsing the whole catalog.
+     */
+    void clearSearchResults() {
+        if (searchResults != null) {
+            searchResults = null;
+            refresh();
+        }
+    }
+
+    /**
+     * Updates the name, price and stock of loaded rows in place and repaints just
+     * those rows; products on pages not loaded are picked up when their page loads.
+     */
+    void updateProducts(Map<Integer, Product> changes) {
+        if (searchResults != null) {
+            updateRows(searchResults, 0, changes);
+            return;
+        }
+        for (Map.Entry<Integer, List<Product>> page : pages.entrySet()) {
+            updateRows(page.getValue(), page.getKey() * PAGE_SIZE, changes);
+        }
+    }
+
+    private void updateRows(List<Product> rows, int firstRow, Map<Integer, Product> changes) {
+        for (int i = 0; i < rows.size(); i++) {
+            Product product = rows.get(i);
+            Product changed = changes.get(product.getId());
+            if (changed != null) {
+                product.setName(changed.getName());
+                product.setPrice(changed.getPrice());
+                product.setQuantity(changed.getQuantity());
+                if (firstRow + i < getRowCount()) {
+                    fireTableRowsUpdated(firstRow + i, firstRow + i);
+                }
+            }
+        }
+    }
+
+    void cancel() {
+        if (pendingCount != null) {
+            pendingCount.cancel(false);
+        }
+    }
+
+    /**
+     * Returns the product shown at the given row, or null if its page is not loaded yet.
+     */
+    Product getProductAt(int row) {
+        if (searchResults != null) {
+            return row < searchResults.size() ? searchResults.get(row) : null;
+        }
+        int page = row / PAGE_SIZE;
+        List<Product> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        int index = row % PAGE_SIZE;
+        return index < rows.size() ? rows.get(index) : null;
+    }
+
+    private void requestPage(int page) {
+        if (!loading.add(page)) {
+            return;
+        }
+        int requestGeneration = generation;
+        EdtDispatcher.deliver(fetchPage(page), rows -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loading.remove(page);
+            pages.put(page, rows);
+            int first = page * PAGE_SIZE;
+            int last = Math.min(first + PAGE_SIZE, rowCount) - 1;
+            if (first <= last && searchResults == null) {
+                fireTableRowsUpdated(first, last);
+            }
+        }, error -> {
+            loading.remove(page);
+            System.err.println("Failed to load product page " + page);
+            error.printStackTrace();
+        });
+    }
+
+    private CompletableFuture<List<Product>> fetchPage(int page) {
+        // When scrolling forward the previous page is cached, so continue from its
+        // last id with a keyset query instead of making the database skip rows
+        List<Product> previous = page > 0 ? pages.get(page - 1) : null;
+        if (previous != null && previous.size() == PAGE_SIZE) {
+            Product last = previous.get(PAGE_SIZE - 1);
+            return AsyncECommerceStore.getProductsAfter(ProductOrder.ID, last, PAGE_SIZE);
+        }
+        if (page == 0) {
+            return AsyncECommerceStore.getProductsAfter(ProductOrder.ID, null, PAGE_SIZE);
+        }
+        return AsyncECommerceStore.getProductsPage(page * PAGE_SIZE, PAGE_SIZE);
+    }
+
+    @Override
+    public int getRowCount() {
+        return searchResults != null ? searchResults.size() : rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Product product = getProductAt(row);
+        if (product == null) {
+            return null; // Rendered blank until the page arrives
+        }
+        return switch (column) {
+            case 0 -> product.getId();
+            case 1 -> product.getName();
+            case 2 -> "$" + product.getPrice();
+            case 3 -> product.getQuantity();
+            default -> null;
+        };
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Make table non-editable
+    }
+}
@@ -0,0 +1,156 @@
+package GUI;
+
+import utils.Metrics;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live view of the metrics registry: latency of every timed operation, cache hit
+ * ratios and pool gauges. Refreshes once a second while it is on screen.
+ */
+class PerformancePanel extends JPanel {
+    private static final int REFRESH_INTERVAL_MS = 1000;
+
+    private final TimerTableModel timerModel = new TimerTableModel();
+    private final ValueTableModel valueModel = new ValueTableModel();
+    private final Timer refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refresh());
+
+    PerformancePanel() {
+        setLayout(new BorderLayout());
+
+        JTable timerTable = new JTable(timerModel);
+        timerTable.setAutoCreateRowSorter(true);
+        timerTable.getColumnModel().getColumn(0).setPreferredWidth(220);
+        JPanel timerPanel = new JPanel(new BorderLayout());
+        timerPanel.setBorder(BorderFactory.createTitledBorder("Operations"));
+        timerPanel.add(new JScrollPane(timerTable), BorderLayout.CENTER);
+
+        JTable valueTable = new JTable(valueModel);
+        JPanel valuePanel = new JPanel(new BorderLayout());
+        valuePanel.setBorder(BorderFactory.createTitledBorder("Caches and Pools"));
+        valuePanel.add(new JScrollPane(valueTable), BorderLayout.CENTER);
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, timerPanel, valuePanel);
+        splitPane.setResizeWeight(0.7);
+
+        JButton resetButton = new JButton("Reset Statistics");
+        resetButton.addActionListener(e -> {
+            Metrics.reset();
+            refresh();
+        });
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(resetButton);
+
+        add(splitPane, BorderLayout.CENTER);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        // Only poll the registry while the tab is visible
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                if (isShowing()) {
+                    refresh();
+                    refreshTimer.start();
+                } else {
+                    refreshTimer.stop();
+                }
+            }
+        });
+    }
+
+    private void refresh() {
+        timerModel.setRows(Metrics.timers());
+
+        List<String[]> values = new ArrayList<>();
+        for (Metrics.CacheStats cache : Metrics.caches()) {
+            values.add(new String[] { cache.getName() + " hit ratio",
+                    String.format("%.1f%% (%,d hits, %,d misses, %,d evictions)", cache.getHitRatio() * 100,
+                            cache.getHits(), cache.getMisses(), cache.getEvictions()) });
+        }
+        for (Map.Entry<String, Double> gauge : Metrics.gauges().entrySet()) {
+            values.add(new String[] { gauge.getKey(), String.format("%,.0f", gauge.getValue()) });
+        }
+        valueModel.setRows(values);
+    }
+
+    private static class TimerTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {
+            "Operation", "Calls", "Errors", "Mean (ms)", "p50 (ms)", "p99 (ms)", "Max (ms)"
+        };
+        private List<Metrics.TimerSnapshot> rows = new ArrayList<>();
+
+        void setRows(List<Metrics.TimerSnapshot> rows) {
+            int previous = this.rows.size();
+            this.rows = rows;
+            // Timers are only ever added, so an unchanged count means the same rows:
+            // update them in place to keep the selection
+            if (previous == rows.size() && previous > 0) {
+                fireTableRowsUpdated(0, previous - 1);
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public int getRowCount() { return rows.size(); }
+
+        @Override
+        public int getColumnCount() { return COLUMNS.length; }
+
+        @Override
+        public String getColumnName(int column) { return COLUMNS[column]; }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return switch (column) {
+                case 0 -> String.class;
+                case 1, 2 -> Long.class;
+                default -> Double.class;
+            };
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Metrics.TimerSnapshot timer = rows.get(row);
+            return switch (column) {
+                case 0 -> timer.getName();
+                case 1 -> timer.getCount();
+                case 2 -> timer.getErrors();
+                case 3 -> round(timer.getMeanMillis());
+                case 4 -> round(timer.getP50Millis());
+                case 5 -> round(timer.getP99Millis());
+                default -> round(timer.getMaxMillis());
+            };
+        }
+
+        private static double round(double millis) {
+            return Math.round(millis * 1000) / 1000.0;
+        }
+    }
+
+    private static class ValueTableModel extends AbstractTableModel {
+        private List<String[]> rows = new ArrayList<>();
+
+        void setRows(List<String[]> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() { return rows.size(); }
+
+        @Override
+        public int getColumnCount() { return 2; }
+
+        @Override
+        public String getColumnName(int column) { return column == 0 ? "Metric" : "Value"; }
+
+        @Override
+        public Object getValueAt(int row, int column) { return rows.get(row)[column]; }
+    }
+}
@@ -0,0 +1,26 @@
+package Interfaces;
+
+import Models.Order;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Persistent storage for placed orders.
+ */
+public interface OrderRepository {
+    /**
+     * Saves the orders (their ids are ignored) in one transaction and returns the
+     * generated ids in the same order. Either all are saved or none is.
+     */
+    List<Integer> insertAll(List<Order> orders) throws SQLException;
+
+    /**
+     * Hands every order with its items to the consumer in id order and returns how
+     * many there were. Product names are not stored with orders, so item names
+     * may be null.
+     */
+    @ReadOnly
+    long stream(Consumer<Order> consumer) throws SQLException;
+}
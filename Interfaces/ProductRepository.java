@@ -0,0 +1,92 @@
+package Interfaces;
+
+import Models.Product;
+import Store.ProductOrder;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Persistent storage for the product catalog. ECommerceStore keeps the caches
+ * and indexes on top; implementations only store and query products.
+ *
+ * Products returned are always new objects the caller may modify.
+ */
+public interface ProductRepository {
+    /**
+     * Inserts a product and returns its generated id.
+     */
+    int insert(String name, double price, int quantity) throws SQLException;
+
+    /**
+     * Inserts all products, ignoring their ids, in one transaction and returns
+     * the generated ids in the same order.
+     */
+    List<Integer> insertAll(List<Product> products) throws SQLException;
+
+    boolean update(int id, String name, double price, int quantity) throws SQLException;
+
+    boolean delete(int id) throws SQLException;
+
+    @ReadOnly
+    Product findById(int id) throws SQLException;
+
+    @ReadOnly
+    int count() throws SQLException;
+
+    /**
+     * Up to limit products ordered by id, starting at the given row offset.
+     */
+    @ReadOnly
+    List<Product> findPage(int offset, int limit) throws SQLException;
+
+    /**
+     * Up to limit products sorting after the given one in the given order, or the
+     * first page when after is null.
+     */
+    @ReadOnly
+    List<Product> findAfter(ProductOrder order, Product after, int limit) throws SQLException;
+
+    /**
+     * Hands every product to the consumer in the given order and returns how many there were.
+     */
+    @ReadOnly
+    long stream(ProductOrder order, Consumer<Product> consumer) throws SQLException;
+
+    /**
+     * Current catalog version for delta sync, or -1 if changes are not tracked
+     * and callers have to reload everything to catch up. Not read-only on
+     * purpose: the catalog cache syncs from the primary.
+     */
+    long currentVersion() throws SQLException;
+
+    /**
+     * Reports every product changed after the given version, with a null product
+     * if it was deleted, and returns the version the caller is now at. Products
+     * may be reported again on later calls, since changes do not always become
+     * visible in version order. Not read-only either.
+     */
+    long changesSince(long version, BiConsumer<Integer, Product> changed) throws SQLException;
+
+    /**
+     * Takes quantity units of stock if that many are available; stock never goes negative.
+     */
+    boolean tryReserve(int id, int quantity) throws SQLException;
+
+    /**
+     * Stock of the product, or -1 if it does not exist. Not read-only on purpose:
+     * reservations decide on it, so it always comes from the primary.
+     */
+    int findQuantity(int id) throws SQLException;
+
+    /**
+     * Applies every productId -> delta change or none of them; fails if a product
+     * would drop below zero stock, or is missing for a negative delta. Stock
+     * returned (a positive delta) to a product deleted since is skipped, so one
+     * deleted product cannot keep a cart's other items from going back.
+     */
+    boolean adjustStock(Map<Integer, Integer> deltas) throws SQLException;
+}
@@ -0,0 +1,16 @@
+package Interfaces;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository method that only reads. With read replicas configured,
+ * such calls may be served by a replica, which can lag slightly behind the
+ * primary; everything else goes to the primary.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadOnly {
+}
@@ -0,0 +1,28 @@
+package Interfaces;
+
+import Models.User;
+
+import java.sql.SQLException;
+
+/**
+ * Persistent storage for user accounts. The type is "admin" or "customer";
+ * passwords are stored as given, normally a PasswordHasher hash.
+ */
+public interface UserRepository {
+    /**
+     * Returns the Admin or Customer with that username, holding the stored
+     * password hash, or null if there is none.
+     */
+    @ReadOnly
+    User findByUsername(String username) throws SQLException;
+
+    /**
+     * Creates the account; returns false if the username is already taken.
+     */
+    boolean insert(String username, String passwordHash, String type) throws SQLException;
+
+    boolean updatePassword(String username, String passwordHash) throws SQLException;
+
+    @ReadOnly
+    int countByType(String type) throws SQLException;
+}
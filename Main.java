@@ -1,12 +1,58 @@
 import GUI.ECommerceGUI;
-import utils.DatabaseConnection;
+import Server.StoreHttpServer;
+import Store.CatalogExporter;
+import Store.ImportReport;
+import Store.ProductImporter;
+import Store.Repositories;
+import Store.StorageEngine;
 
 import javax.swing.*;
-import java.sql.Connection;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 
 public class Main {
+    private static final int DEFAULT_SERVER_PORT = 8080;
+
     public static void main(String[] args) {
+        // Headless mode: java Main --server [port]
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = DEFAULT_SERVER_PORT;
+            if (args.length > 1) {
+                try {
+                    port = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    port = -1;
+                }
+                if (port < 0 || port > 65535) {
+                    System.err.println("Usage: java Main --server [port]");
+                    System.exit(1);
+                }
+            }
+            runServer(port);
+            return;
+        }
+        
+        // Bulk product import: java Main --import products.csv|products.json
+        if (args.length > 0 && args[0].equals("--import")) {
+            if (args.length < 2) {
+                System.err.println("Usage: java Main --import <file.csv|file.json>");
+                System.exit(1);
+            }
+            runImport(Path.of(args[1]));
+            return;
+        }
+        
+        // Feed export: java Main --export products.csv|products.bin, --export-orders orders.csv|orders.bin
+        if (args.length > 0 && (args[0].equals("--export") || args[0].equals("--export-orders"))) {
+            if (args.length < 2) {
+                System.err.println("Usage: java Main " + args[0] + " <file.csv|file.bin>");
+                System.exit(1);
+            }
+            runExport(Path.of(args[1]), args[0].equals("--export-orders"));
+            return;
+        }
+        
         // Set look and feel to system default
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -16,15 +62,21 @@ public class Main {
         
         // Test database connection before launching the application
         try {
-            Connection conn = DatabaseConnection.getInstance().getConnection();
-            System.out.println("Successfully connected to the database");
-            conn.close();
+            Repositories.checkAvailable();
+            System.out.println("Successfully connected to the database (" + Repositories.engine() + " engine)");
         } catch (SQLException e) {
-            String errorMessage = "Failed to connect to the database. Please make sure the MySQL server is running.\n\n";
-            errorMessage += "Error: " + e.getMessage() + "\n\n";
-            errorMessage += "1. Make sure Docker is running\n";
-            errorMessage += "2. Start the MySQL container with: docker-compose up -d\n";
-            errorMessage += "3. Try running the application again";
+            String errorMessage;
+            if (Repositories.engine() == StorageEngine.MYSQL) {
+                errorMessage = "Failed to connect to the database. Please make sure the MySQL server is running.\n\n";
+                errorMessage += "Error: " + e.getMessage() + "\n\n";
+                errorMessage += "1. Make sure Docker is running\n";
+                errorMessage += "2. Start the MySQL container with: docker-compose up -d\n";
+                errorMessage += "3. Try running the application again";
+            } else {
+                errorMessage = "Failed to open the embedded database.\n\n";
+                errorMessage += "Error: " + e.getMessage() + "\n\n";
+                errorMessage += "Make sure the H2 jar is in the lib directory.";
+            }
 
             
             JOptionPane.showMessageDialog(null, errorMessage, 
@@ -41,4 +93,60 @@ public class Main {
             app.setVisible(true);
         });
     }
+    
+    private static void runImport(Path file) {
+        try {
+            Repositories.checkAvailable();
+        } catch (SQLException e) {
+            System.err.println("Failed to connect to the database: " + e.getMessage());
+            System.exit(1);
+        }
+        
+        try {
+            ImportReport report = ProductImporter.importFile(file, System.out::println);
+            System.exit(report.getRejected() > 0 ? 2 : 0);
+        } catch (IOException | SQLException e) {
+            System.err.println("Import failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    private static void runExport(Path file, boolean orders) {
+        try {
+            Repositories.checkAvailable();
+        } catch (SQLException e) {
+            System.err.println("Failed to connect to the database: " + e.getMessage());
+            System.exit(1);
+        }
+        
+        try {
+            long startedAt = System.currentTimeMillis();
+            long count = orders ? CatalogExporter.exportOrders(file) : CatalogExporter.exportProducts(file);
+            System.out.printf("Exported %,d %s to %s in %.1f s%n", count, orders ? "orders" : "products",
+                    file, (System.currentTimeMillis() - startedAt) / 1000.0);
+            System.exit(0);
+        } catch (IOException | SQLException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    private static void runServer(int port) {
+        try {
+            Repositories.checkAvailable();
+            System.out.println("Successfully connected to the database (" + Repositories.engine() + " engine)");
+        } catch (SQLException e) {
+            System.err.println("Failed to connect to the database: " + e.getMessage());
+            System.exit(1);
+        }
+        
+        try {
+            StoreHttpServer server = new StoreHttpServer(port);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "http-server-shutdown"));
+            server.start();
+        } catch (IOException e) {
+            System.err.println("Failed to start HTTP server on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
 }
@@ -1,10 +1,13 @@
 package Models;
 
 import Store.ECommerceStore;
+import Store.OrderService;
+import Store.StockReservation;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletionException;
 
 public class Customer extends User {
     // Store product IDs and quantities in the cart
@@ -39,6 +42,15 @@ public class Customer extends User {
             }
         } while (choice != 5);
         
+        // Return reserved stock for anything left in the cart
+        if (!cart.isEmpty()) {
+            if (ECommerceStore.adjustStock(cart)) {
+                cart.clear();
+            } else {
+                System.err.println("Failed to restore stock for cart items: " + cart);
+            }
+        }
+        
         // Only close scanner when exiting the menu
         sc.close();
     }
@@ -46,31 +58,18 @@ public class Customer extends User {
     private void addToCart(Scanner sc) {
         System.out.print("Enter Product ID to add to cart: ");
         int id = sc.nextInt();
-        Product product = ECommerceStore.getProductById(id);
         
-        if (product != null && product.getQuantity() > 0) {
-            // Get current quantity in cart (if any)
-            int cartQuantity = cart.getOrDefault(id, 0);
-            
-            // Don't allow adding more than what's in stock
-            if (cartQuantity + 1 <= product.getQuantity()) {
-                // Update database to decrease the product quantity
-                int newQuantity = product.getQuantity() - 1;
-                boolean updated = ECommerceStore.updateProduct(
-                    product.getId(), product.getName(), product.getPrice(), newQuantity);
-                
-                if (updated) {
-                    // Update cart with new quantity
-                    cart.put(id, cartQuantity + 1);
-                    System.out.println("Added to cart.");
-                } else {
-                    System.out.println("Error updating inventory. Please try again.");
-                }
-            } else {
-                System.out.println("Cannot add more. Insufficient stock available.");
+        // Reserve one unit in the database; it refuses to go below zero stock
+        switch (StockReservation.reserve(id, 1)) {
+            case RESERVED -> {
+                // Update cart with new quantity
+                cart.merge(id, 1, Integer::sum);
+                System.out.println("Added to cart.");
             }
-        } else {
-            System.out.println("Invalid product or out of stock.");
+            case INSUFFICIENT_STOCK, SOLD_OUT -> System.out.println("Cannot add more. Insufficient stock available.");
+            case THROTTLED -> System.out.println("This product is in high demand. Please try again in a moment.");
+            case UNKNOWN_PRODUCT -> System.out.println("Invalid product.");
+            default -> System.out.println("Error updating inventory. Please try again.");
         }
     }
 
@@ -106,7 +105,13 @@ public class Customer extends User {
             return;
         }
         
-        System.out.println("Order placed successfully! 🎉");
+        try {
+            Order order = OrderService.placeOrder(username, cart).join();
+            System.out.println("Order #" + order.getId() + " placed successfully! 🎉 Total: $" + order.getTotal());
+        } catch (CompletionException e) {
+            System.out.println("Checkout failed: " + e.getCause().getMessage());
+            return;
+        }
         // Clear the cart after successful checkout
         cart.clear();
     }
@@ -0,0 +1,31 @@
+package Models;
+
+import java.util.Collections;
+import java.util.List;
+
+public class Order {
+    private int id;
+    private String username;
+    private List<OrderItem> items;
+
+    public Order(int id, String username, List<OrderItem> items) {
+        this.id = id;
+        this.username = username;
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    public int getId() { return id; }
+
+    public String getUsername() { return username; }
+
+    public List<OrderItem> getItems() { return items; }
+
+    public double getTotal() {
+        return items.stream().mapToDouble(OrderItem::getSubtotal).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "Order #" + id + " | " + username + " | " + items.size() + " items | $" + getTotal();
+    }
+}
@@ -0,0 +1,557 @@
+package Server;
+
+import Models.Customer;
+import Models.Order;
+import Models.OrderItem;
+import Models.Product;
+import Models.User;
+import Store.ECommerceStore;
+import Store.OrderService;
+import Store.ProductOrder;
+import Store.ReadRouting;
+import Store.ReservationResult;
+import Store.StockReservation;
+import Store.UserStore;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import utils.Json;
+import utils.VirtualThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless JSON API over the store, served by the JDK's built-in HTTP server
+ * with one virtual thread per request.
+ *
+ * Endpoints (session token from /api/login goes in the X-Session-Token header):
+ *   GET    /api/health
+ *   GET    /api/stats
+ *   GET    /api/products     ?after={id}&limit=
+ *                             or ?minPrice=&maxPrice=&inStock=&sort=price|price_desc&limit=
+ *   GET    /api/search       ?q=&limit=
+ *   GET    /api/products/{id}
+ *   POST   /api/login        {"username", "password", "type"}
+ *   POST   /api/logout
+ *   GET    /api/cart
+ *   POST   /api/cart         {"productId", "quantity"}
+ *   DELETE /api/cart/{productId}
+ *   POST   /api/checkout
+ */
+public class StoreHttpServer {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 200;
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+    // Sessions unused this long are dropped and their reserved stock returned
+    private static final long SESSION_IDLE_MS = Long.getLong("ecommerce.http.sessionIdleMs", 30 * 60 * 1000L);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService sessionReaper;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final long startedAt = System.currentTimeMillis();
+
+    public StoreHttpServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        executor = VirtualThreads.newPerTaskExecutor("http");
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        sessionReaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "http-session-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.min(SESSION_IDLE_MS, 60_000);
+        sessionReaper.scheduleWithFixedDelay(this::evictIdleSessions, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Store HTTP API listening on port " + server.getAddress().getPort()
+                + (VirtualThreads.isAvailable() ? " (virtual threads)" : " (platform threads)"));
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        sessionReaper.shutdown();
+        // Give reserved stock back for carts that were never checked out
+        for (Session session : sessions.values()) {
+            releaseCart(session);
+        }
+        sessions.clear();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.increment();
+        // Reads after this client's own writes go to the primary, see ReadRouting
+        String token = exchange.getRequestHeaders().getFirst("X-Session-Token");
+        ReadRouting.bind(token != null ? token : exchange.getRemoteAddress().getAddress());
+        try {
+            route(exchange);
+        } catch (ApiException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IOException e) {
+            sendError(exchange, 400, "Malformed request: " + e.getMessage());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            sendError(exchange, 500, "Internal server error");
+        } finally {
+            ReadRouting.unbind();
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+        String resource = path[0];
+        String argument = path.length > 1 ? path[1] : null;
+
+        switch (resource) {
+            case "health" -> send(exchange, 200, Map.of("status", "ok"));
+            case "stats" -> send(exchange, 200, stats());
+            case "products" -> {
+                requireMethod(method, "GET");
+                Map<String, String> query = queryParams(exchange);
+                if (argument == null && isPriceQuery(query)) {
+                    send(exchange, 200, toJson(priceQuery(query)));
+                } else if (argument == null) {
+                    send(exchange, 200, toJson(productPage(query)));
+                } else {
+                    Product product = ECommerceStore.getProductById(parseId(argument));
+                    if (product == null) {
+                        throw new ApiException(404, "Product not found");
+                    }
+                    send(exchange, 200, toJson(product));
+                }
+            }
+            case "search" -> {
+                requireMethod(method, "GET");
+                Map<String, String> query = queryParams(exchange);
+                String text = query.getOrDefault("q", "");
+                int limit = (int) Math.min(parseNumber(query, "limit", DEFAULT_SEARCH_LIMIT), MAX_SEARCH_LIMIT);
+                send(exchange, 200, toJson(ECommerceStore.searchProducts(text, limit)));
+            }
+            case "login" -> {
+                requireMethod(method, "POST");
+                login(exchange);
+            }
+            case "logout" -> {
+                requireMethod(method, "POST");
+                Session session = sessions.remove(requireToken(exchange));
+                if (session != null) {
+                    releaseCart(session);
+                }
+                send(exchange, 200, Map.of("status", "logged out"));
+            }
+            case "cart" -> cart(exchange, method, argument);
+            case "checkout" -> {
+                requireMethod(method, "POST");
+                checkout(exchange);
+            }
+            default -> throw new ApiException(404, "Unknown endpoint");
+        }
+    }
+
+    private void login(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = readBody(exchange);
+        String username = requireString(body, "username");
+        String password = requireString(body, "password");
+        String type = body.containsKey("type") ? requireString(body, "type") : "customer";
+
+        User user = UserStore.authenticate(username, password, type);
+        if (user == null) {
+            throw new ApiException(401, "Invalid credentials");
+        }
+
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(user));
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("token", token);
+        response.put("username", user.getUsername());
+        response.put("type", type);
+        send(exchange, 200, response);
+    }
+
+    private void cart(HttpExchange exchange, String method, String argument) throws IOException {
+        Session session = requireSession(exchange);
+
+        switch (method) {
+            case "GET" -> send(exchange, 200, cartJson(session));
+            case "POST" -> {
+                Map<String, Object> body = readBody(exchange);
+                int productId = requireInt(body, "productId");
+                int quantity = body.containsKey("quantity") ? requireInt(body, "quantity") : 1;
+                if (quantity <= 0) {
+                    throw new ApiException(400, "quantity must be positive");
+                }
+
+                ReservationResult result = StockReservation.reserve(productId, quantity);
+                switch (result) {
+                    case RESERVED -> {
+                        boolean added;
+                        synchronized (session) {
+                            added = !session.closed;
+                            if (added) {
+                                session.cart.merge(productId, quantity, Integer::sum);
+                            }
+                        }
+                        if (!added) {
+                            // The session expired while reserving; nobody is left to hold the stock
+                            StockReservation.release(productId, quantity);
+                            throw new ApiException(401, "Invalid or expired session");
+                        }
+                        send(exchange, 200, cartJson(session));
+                    }
+                    case INSUFFICIENT_STOCK, SOLD_OUT -> throw new ApiException(409, "Insufficient stock");
+                    case THROTTLED -> throw new ApiException(429, "Too many requests for this product, try again");
+                    case UNKNOWN_PRODUCT -> throw new ApiException(404, "Product not found");
+                    default -> throw new ApiException(503, "Could not reserve stock, try again");
+                }
+            }
+            case "DELETE" -> {
+                if (argument == null) {
+                    throw new ApiException(400, "Product id required");
+                }
+                int productId = parseId(argument);
+                Integer removed;
+                synchronized (session) {
+                    removed = session.cart.remove(productId);
+                }
+                if (removed == null) {
+                    throw new ApiException(404, "Product not in cart");
+                }
+                if (!StockReservation.release(productId, removed)) {
+                    // Keep the item so the client can retry
+                    synchronized (session) {
+                        session.cart.merge(productId, removed, Integer::sum);
+                    }
+                    throw new ApiException(503, "Could not release stock, try again");
+                }
+                send(exchange, 200, cartJson(session));
+            }
+            default -> throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private void checkout(HttpExchange exchange) throws IOException {
+        Session session = requireSession(exchange);
+        Map<Integer, Integer> items;
+        synchronized (session) {
+            if (session.cart.isEmpty()) {
+                throw new ApiException(400, "Cart is empty");
+            }
+            items = new HashMap<>(session.cart);
+            session.cart.clear();
+        }
+
+        Order order;
+        try {
+            order = OrderService.placeOrder(session.user.getUsername(), items).join();
+        } catch (CompletionException e) {
+            // Put the items back so the client can retry
+            boolean restored;
+            synchronized (session) {
+                restored = !session.closed;
+                if (restored) {
+                    items.forEach((id, qty) -> session.cart.merge(id, qty, Integer::sum));
+                }
+            }
+            if (!restored) {
+                returnStock(items);
+            }
+            throw new ApiException(503, "Checkout failed: " + e.getCause().getMessage());
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("orderId", order.getId());
+        response.put("total", order.getTotal());
+        List<Object> lines = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("productId", item.getProductId());
+            line.put("name", item.getProductName());
+            line.put("quantity", item.getQuantity());
+            line.put("unitPrice", item.getUnitPrice());
+            lines.add(line);
+        }
+        response.put("items", lines);
+        send(exchange, 200, response);
+    }
+
+    private void releaseCart(Session session) {
+        Map<Integer, Integer> items;
+        synchronized (session) {
+            session.closed = true;
+            items = new HashMap<>(session.cart);
+            session.cart.clear();
+        }
+        returnStock(items);
+    }
+
+    private static void returnStock(Map<Integer, Integer> items) {
+        if (!items.isEmpty() && !ECommerceStore.adjustStock(items)) {
+            System.err.println("Failed to return reserved stock of a closed session: " + items);
+        }
+    }
+
+    private void evictIdleSessions() {
+        long cutoff = System.currentTimeMillis() - SESSION_IDLE_MS;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            Session session = entry.getValue();
+            if (session.lastUsed < cutoff && sessions.remove(entry.getKey(), session)) {
+                releaseCart(session);
+            }
+        }
+    }
+
+    private Map<String, Object> cartJson(Session session) {
+        Map<Integer, Integer> items;
+        synchronized (session) {
+            items = new HashMap<>(session.cart);
+        }
+        List<Object> lines = new ArrayList<>();
+        double total = 0;
+        for (Map.Entry<Integer, Integer> entry : items.entrySet()) {
+            Product product = ECommerceStore.getProductById(entry.getKey());
+            if (product == null) {
+                continue;
+            }
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("productId", product.getId());
+            line.put("name", product.getName());
+            line.put("price", product.getPrice());
+            line.put("quantity", entry.getValue());
+            lines.add(line);
+            total += product.getPrice() * entry.getValue();
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("items", lines);
+        response.put("total", total);
+        return response;
+    }
+
+    private Map<String, Object> stats() {
+        long uptimeMs = Math.max(1, System.currentTimeMillis() - startedAt);
+        long requests = requestCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests);
+        stats.put("errors", errorCount.sum());
+        stats.put("uptimeMs", uptimeMs);
+        stats.put("avgRequestsPerSecond", requests * 1000.0 / uptimeMs);
+        stats.put("sessions", sessions.size());
+        stats.put("virtualThreads", VirtualThreads.isAvailable());
+        return stats;
+    }
+
+    // Request helpers
+
+    private Session requireSession(HttpExchange exchange) {
+        Session session = sessions.get(requireToken(exchange));
+        if (session == null) {
+            throw new ApiException(401, "Invalid or expired session");
+        }
+        session.lastUsed = System.currentTimeMillis();
+        if (!(session.user instanceof Customer)) {
+            throw new ApiException(403, "Only customers have a cart");
+        }
+        return session;
+    }
+
+    private static String requireToken(HttpExchange exchange) {
+        String token = exchange.getRequestHeaders().getFirst("X-Session-Token");
+        if (token == null || token.isEmpty()) {
+            throw new ApiException(401, "Missing X-Session-Token header");
+        }
+        return token;
+    }
+
+    private static void requireMethod(String actual, String expected) {
+        if (!expected.equals(actual)) {
+            throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body too large");
+            }
+            if (bytes.length == 0) {
+                return Map.of();
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String requireString(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof String) || ((String) value).isEmpty()) {
+            throw new ApiException(400, "Field '" + field + "' is required");
+        }
+        return (String) value;
+    }
+
+    private static int requireInt(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof Long) || (Long) value < Integer.MIN_VALUE || (Long) value > Integer.MAX_VALUE) {
+            throw new ApiException(400, "Field '" + field + "' must be an integer");
+        }
+        return ((Long) value).intValue();
+    }
+
+    /**
+     * Answers ?after=&limit= with the next page of products in id order; a client
+     * pages through the catalog by passing the last id it got as after.
+     */
+    private static List<Product> productPage(Map<String, String> query) {
+        int limit = (int) Math.max(1, Math.min(parseNumber(query, "limit", DEFAULT_PAGE_LIMIT), MAX_PAGE_LIMIT));
+        if (!query.containsKey("after")) {
+            return ECommerceStore.getProductsAfter(ProductOrder.ID, null, limit);
+        }
+        // In id order the cursor is just the id
+        Product after = new Product(parseId(query.get("after")), "", 0, 0);
+        return ECommerceStore.getProductsAfter(ProductOrder.ID, after, limit);
+    }
+
+    private static boolean isPriceQuery(Map<String, String> query) {
+        return query.containsKey("minPrice") || query.containsKey("maxPrice")
+                || query.containsKey("sort") || query.containsKey("inStock");
+    }
+
+    /**
+     * Answers ?minPrice=&maxPrice=&inStock=&sort=price|price_desc&limit= from the price index.
+     */
+    private static List<Product> priceQuery(Map<String, String> query) {
+        int limit = (int) Math.min(parseNumber(query, "limit", DEFAULT_SEARCH_LIMIT), MAX_SEARCH_LIMIT);
+        boolean inStockOnly = Boolean.parseBoolean(query.get("inStock"));
+        if (query.containsKey("minPrice") || query.containsKey("maxPrice")) {
+            double min = parseNumber(query, "minPrice", 0);
+            double max = query.containsKey("maxPrice") ? parseNumber(query, "maxPrice", 0) : Double.MAX_VALUE;
+            return ECommerceStore.getProductsInPriceRange(min, max, inStockOnly, limit);
+        }
+        if ("price_desc".equals(query.get("sort"))) {
+            return ECommerceStore.getMostExpensiveProducts(limit, inStockOnly);
+        }
+        return ECommerceStore.getCheapestProducts(limit, inStockOnly);
+    }
+
+    private static double parseNumber(Map<String, String> query, String name, double defaultValue) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid " + name + ": " + value);
+        }
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = eq < 0 ? pair : pair.substring(0, eq);
+                String value = eq < 0 ? "" : pair.substring(eq + 1);
+                params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static int parseId(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid id: " + text);
+        }
+    }
+
+    private static List<Object> toJson(List<Product> products) {
+        List<Object> list = new ArrayList<>(products.size());
+        for (Product product : products) {
+            list.add(toJson(product));
+        }
+        return list;
+    }
+
+    private static Map<String, Object> toJson(Product product) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", product.getId());
+        json.put("name", product.getName());
+        json.put("price", product.getPrice());
+        json.put("quantity", product.getQuantity());
+        return json;
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) {
+        errorCount.increment();
+        try {
+            send(exchange, status, Map.of("error", message));
+        } catch (IOException e) {
+            // Client went away; nothing to report to
+        }
+    }
+
+    private static class Session {
+        final User user;
+        // productId -> reserved quantity, guarded by the session's monitor
+        final Map<Integer, Integer> cart = new HashMap<>();
+        // Set once the cart was released; guarded by the session's monitor
+        boolean closed;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Session(User user) {
+            this.user = user;
+        }
+    }
+
+    private static class ApiException extends RuntimeException {
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package Store;
+
+import Models.Admin;
+import Models.Order;
+import Models.Product;
+import Models.User;
+import utils.VirtualThreads;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over the store. Every call runs its database work on a
+ * virtual thread (or a daemon thread on older JDKs) and returns a future, so
+ * callers such as the Swing panels never block on JDBC.
+ *
+ * Cancelling a returned future drops its result; the query itself still finishes.
+ */
+public class AsyncECommerceStore {
+    private static final ExecutorService EXECUTOR = VirtualThreads.newPerTaskExecutor("store-io");
+
+    private AsyncECommerceStore() { }
+
+    public static ExecutorService executor() {
+        return EXECUTOR;
+    }
+
+    // Products
+
+    public static CompletableFuture<List<Product>> getAllProducts() {
+        return supply(ECommerceStore::getAllProducts);
+    }
+
+    public static CompletableFuture<Integer> countProducts() {
+        return supply(ECommerceStore::countProducts);
+    }
+
+    public static CompletableFuture<List<Product>> getProductsPage(int offset, int limit) {
+        return supply(() -> ECommerceStore.getProductsPage(offset, limit));
+    }
+
+    public static CompletableFuture<List<Product>> getProductsAfter(ProductOrder order, Product after, int limit) {
+        return supply(() -> ECommerceStore.getProductsAfter(order, after, limit));
+    }
+
+    public static CompletableFuture<List<Product>> searchProducts(String query, int limit) {
+        return supply(() -> ECommerceStore.searchProducts(query, limit));
+    }
+
+    public static CompletableFuture<List<Product>> getProductsInPriceRange(double min, double max,
+                                                                          boolean inStockOnly, int limit) {
+        return supply(() -> ECommerceStore.getProductsInPriceRange(min, max, inStockOnly, limit));
+    }
+
+    public static CompletableFuture<List<Product>> getCheapestProducts(int limit, boolean inStockOnly) {
+        return supply(() -> ECommerceStore.getCheapestProducts(limit, inStockOnly));
+    }
+
+    public static CompletableFuture<List<Product>> getMostExpensiveProducts(int limit, boolean inStockOnly) {
+        return supply(() -> ECommerceStore.getMostExpensiveProducts(limit, inStockOnly));
+    }
+
+    public static CompletableFuture<Void> syncCatalog() {
+        return run(ECommerceStore::syncCatalog);
+    }
+
+    public static CompletableFuture<Product> getProductById(int id) {
+        return supply(() -> ECommerceStore.getProductById(id));
+    }
+
+    public static CompletableFuture<Void> addProduct(String name, double price, int quantity) {
+        return run(() -> ECommerceStore.addProduct(name, price, quantity));
+    }
+
+    public static CompletableFuture<Boolean> updateProduct(int id, String name, double price, int quantity) {
+        return supply(() -> ECommerceStore.updateProduct(id, name, price, quantity));
+    }
+
+    public static CompletableFuture<Void> removeProduct(int id) {
+        return run(() -> ECommerceStore.removeProduct(id));
+    }
+
+    // Stock and orders
+
+    public static CompletableFuture<ReservationResult> reserve(int productId, int quantity) {
+        return supply(() -> StockReservation.reserve(productId, quantity));
+    }
+
+    public static CompletableFuture<Boolean> release(int productId, int quantity) {
+        return supply(() -> StockReservation.release(productId, quantity));
+    }
+
+    public static CompletableFuture<Boolean> adjustStock(Map<Integer, Integer> deltas) {
+        return supply(() -> ECommerceStore.adjustStock(deltas));
+    }
+
+    public static CompletableFuture<Order> placeOrder(String username, Map<Integer, Integer> quantities) {
+        return supply(() -> OrderService.placeOrder(username, quantities)).thenCompose(f -> f);
+    }
+
+    /**
+     * Runs a bulk import; the future fails with the IOException or SQLException that stopped it.
+     */
+    public static CompletableFuture<ImportReport> importProducts(Path file, Consumer<ImportReport> progress) {
+        return supply(() -> {
+            try {
+                return ProductImporter.importFile(file, progress);
+            } catch (IOException | SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    // Users
+
+    public static CompletableFuture<User> authenticate(String username, String password, String type) {
+        return supply(() -> UserStore.authenticate(username, password, type));
+    }
+
+    public static CompletableFuture<RegistrationResult> registerCustomer(String username, String password) {
+        return supply(() -> UserStore.registerCustomer(username, password));
+    }
+
+    public static CompletableFuture<Admin> ensureDefaultAdmin() {
+        return supply(UserStore::ensureDefaultAdmin);
+    }
+
+    private static <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, EXECUTOR);
+    }
+
+    private static CompletableFuture<Void> run(Runnable task) {
+        return CompletableFuture.runAsync(task, EXECUTOR);
+    }
+}
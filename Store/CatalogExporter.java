@@ -0,0 +1,284 @@
+package Store;
+
+import Models.Order;
+import Models.OrderItem;
+import Models.Product;
+import utils.Csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Streaming export of the catalog and the order history, e.g. for nightly feeds.
+ *
+ * Rows come straight from the repository stream and are encoded into one direct
+ * buffer that is written to a FileChannel whenever it fills up, so no list of
+ * products or orders is ever built and memory use does not grow with the
+ * catalog. The file is written next to the target and moved into place at the
+ * end, so readers never see half an export.
+ *
+ * The format follows the extension: .csv, with a header row, or .bin, a compact
+ * big-endian binary format (readable with DataInputStream):
+ * <pre>
+ *   header   4-byte magic ("ECPB" products, "ECOB" orders), 1-byte version
+ *   record   int payload length, payload
+ *   trailer  int -1, long record count
+ *
+ *   product  int id, double price, int quantity, short length + UTF-8 name
+ *   order    int id, short length + UTF-8 username, int item count,
+ *            per item: int product id, int quantity, double unit price
+ * </pre>
+ */
+public class CatalogExporter {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte BINARY_VERSION = 1;
+    private static final byte[] PRODUCT_MAGIC = {'E', 'C', 'P', 'B'};
+    private static final byte[] ORDER_MAGIC = {'E', 'C', 'O', 'B'};
+
+    private CatalogExporter() { }
+
+    /**
+     * Writes every product, in id order, and returns how many there were.
+     */
+    public static long exportProducts(Path target) throws IOException, SQLException {
+        boolean csv = isCsv(target);
+        try (ChannelOutput out = new ChannelOutput(target)) {
+            StringBuilder line = new StringBuilder(128);
+            if (csv) {
+                out.putText(line.append("id,name,price,quantity\n"));
+            } else {
+                out.putBytes(PRODUCT_MAGIC);
+                out.buffer(1).put(BINARY_VERSION);
+            }
+
+            long count = stream(() -> Repositories.products().stream(ProductOrder.ID, product -> {
+                if (csv) {
+                    line.setLength(0);
+                    line.append(product.getId()).append(',');
+                    Csv.appendField(line, product.getName()).append(',')
+                            .append(product.getPrice()).append(',')
+                            .append(product.getQuantity()).append('\n');
+                    out.putText(line);
+                } else {
+                    writeProduct(out, product);
+                }
+            }));
+
+            if (!csv) {
+                out.buffer(12).putInt(-1).putLong(count);
+            }
+            out.commit();
+            return count;
+        }
+    }
+
+    /**
+     * Writes every order with its items, in id order, and returns how many orders
+     * there were. The CSV has one row per item, or one with empty item columns
+     * for an order without items.
+     */
+    public static long exportOrders(Path target) throws IOException, SQLException {
+        boolean csv = isCsv(target);
+        try (ChannelOutput out = new ChannelOutput(target)) {
+            StringBuilder line = new StringBuilder(128);
+            if (csv) {
+                out.putText(line.append("order_id,username,product_id,quantity,unit_price\n"));
+            } else {
+                out.putBytes(ORDER_MAGIC);
+                out.buffer(1).put(BINARY_VERSION);
+            }
+
+            long count = stream(() -> Repositories.orders().stream(order -> {
+                if (csv) {
+                    if (order.getItems().isEmpty()) {
+                        line.setLength(0);
+                        line.append(order.getId()).append(',');
+                        Csv.appendField(line, order.getUsername()).append(",,,\n");
+                        out.putText(line);
+                    }
+                    for (OrderItem item : order.getItems()) {
+                        line.setLength(0);
+                        line.append(order.getId()).append(',');
+                        Csv.appendField(line, order.getUsername()).append(',')
+                                .append(item.getProductId()).append(',')
+                                .append(item.getQuantity()).append(',')
+                                .append(item.getUnitPrice()).append('\n');
+                        out.putText(line);
+                    }
+                } else {
+                    writeOrder(out, order);
+                }
+            }));
+
+            if (!csv) {
+                out.buffer(12).putInt(-1).putLong(count);
+            }
+            out.commit();
+            return count;
+        }
+    }
+
+    private static void writeProduct(ChannelOutput out, Product product) {
+        byte[] name = utf8(product.getName());
+        out.buffer(4 + 18 + name.length)
+                .putInt(18 + name.length)
+                .putInt(product.getId())
+                .putDouble(product.getPrice())
+                .putInt(product.getQuantity())
+                .putShort((short) name.length)
+                .put(name);
+    }
+
+    private static void writeOrder(ChannelOutput out, Order order) {
+        byte[] username = utf8(order.getUsername());
+        int length = 10 + username.length + 16 * order.getItems().size();
+        out.buffer(14 + username.length)
+                .putInt(length)
+                .putInt(order.getId())
+                .putShort((short) username.length)
+                .put(username)
+                .putInt(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            out.buffer(16)
+                    .putInt(item.getProductId())
+                    .putInt(item.getQuantity())
+                    .putDouble(item.getUnitPrice());
+        }
+    }
+
+    private static byte[] utf8(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Text too long for the binary format: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static boolean isCsv(Path target) throws IOException {
+        String fileName = target.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (fileName.endsWith(".csv")) {
+            return true;
+        }
+        if (fileName.endsWith(".bin")) {
+            return false;
+        }
+        throw new IOException("Expected a .csv or .bin file: " + target);
+    }
+
+    // Repository streams take a plain Consumer, so write errors travel out unchecked
+    private static long stream(RepositoryStream stream) throws IOException, SQLException {
+        try {
+            return stream.run();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface RepositoryStream {
+        long run() throws SQLException;
+    }
+
+    /**
+     * A direct buffer in front of a FileChannel on a temporary file, which
+     * commit() moves over the target.
+     */
+    private static class ChannelOutput implements Closeable {
+        private final Path target;
+        private final Path temp;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private boolean committed;
+
+        ChannelOutput(Path target) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        /**
+         * The buffer, with room for at least the given number of bytes.
+         */
+        ByteBuffer buffer(int bytes) {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+            if (buffer.remaining() < bytes) {
+                throw new IllegalArgumentException("Record of " + bytes + " bytes does not fit the buffer");
+            }
+            return buffer;
+        }
+
+        void putBytes(byte[] bytes) {
+            buffer(bytes.length).put(bytes);
+        }
+
+        /**
+         * Encodes the text as UTF-8 straight into the buffer.
+         */
+        void putText(CharSequence text) {
+            CharBuffer chars = CharBuffer.wrap(text);
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    drain();
+                } else {
+                    break;
+                }
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+        }
+
+        void commit() throws IOException {
+            try {
+                drain();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            channel.force(false);
+            channel.close();
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void drain() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -1,58 +1,70 @@
 package Store;
 
 import Models.Product;
-import utils.DatabaseConnection;
+import utils.Metrics;
 
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class ECommerceStore {
-    private static List<Product> products = new ArrayList<>();
+    // Primary in-memory lookup structure, keyed by product id
+    private static volatile ProductIndex products = new ProductIndex();
+    // Name search over the cached catalog, rebuilt on every full reload
+    private static volatile ProductSearchIndex searchIndex = new ProductSearchIndex();
+    // Price and availability ordering of the cached catalog, for range and top-N queries
+    private static volatile PriceIndex priceIndex = new PriceIndex();
+    private static volatile boolean catalogLoaded;
+
+    // Delta sync state: highest catalog version (product_changes.change_id on MySQL) applied to the cache
+    private static final Object SYNC_LOCK = new Object();
+    // Changes older than a day are pruned from the log, so stale clients reload fully
+    private static final long FULL_RELOAD_AFTER_MS = 12 * 60 * 60 * 1000L;
+    private static long lastChangeId = -1;
+    private static long lastSyncAt;
+    // False on an older schema without the change log, where every sync is a full reload
+    private static volatile boolean changesTracked = true;
+
+    private static final Metrics.Timer ADD_PRODUCT = Metrics.timer("store.addProduct");
+    private static final Metrics.Timer REMOVE_PRODUCT = Metrics.timer("store.removeProduct");
+    private static final Metrics.Timer UPDATE_PRODUCT = Metrics.timer("store.updateProduct");
+    private static final Metrics.Timer GET_PRODUCT = Metrics.timer("store.getProductById");
+    private static final Metrics.Timer PRODUCT_PAGE = Metrics.timer("store.getProductsPage");
+    private static final Metrics.Timer SEARCH = Metrics.timer("store.searchProducts");
+    private static final Metrics.Timer PRICE_QUERY = Metrics.timer("store.priceQuery");
+    private static final Metrics.Timer SYNC = Metrics.timer("store.syncCatalog");
+    private static final Metrics.Timer RELOAD = Metrics.timer("store.reloadCatalog");
+    private static final Metrics.Timer ADJUST_STOCK = Metrics.timer("store.adjustStock");
+    private static final Metrics.CacheStats PRODUCT_CACHE = Metrics.cache("cache.products");
 
     public static void addProduct(String name, double price, int quantity) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "INSERT INTO products (name, price, quantity) VALUES (?, ?, ?)",
-                 Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setString(1, name);
-            stmt.setDouble(2, price);
-            stmt.setInt(3, quantity);
-            
-            int affectedRows = stmt.executeUpdate();
-            
-            if (affectedRows == 0) {
-                throw new SQLException("Creating product failed, no rows affected.");
-            }
-            
-            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    int id = generatedKeys.getInt(1);
-                    // Add to cache
-                    products.add(new Product(id, name, price, quantity));
-                } else {
-                    throw new SQLException("Creating product failed, no ID obtained.");
-                }
-            }
+        long start = ADD_PRODUCT.start();
+        try {
+            int id = Repositories.products().insert(name, price, quantity);
+            // Add to cache
+            cacheProduct(new Product(id, name, price, quantity));
+            StockChangeBus.catalogChanged();
+            ADD_PRODUCT.stop(start);
         } catch (SQLException e) {
+            ADD_PRODUCT.failed(start);
             System.err.println("Error adding product to database");
             e.printStackTrace();
         }
     }
 
     public static void removeProduct(int id) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("DELETE FROM products WHERE id = ?")) {
-            
-            stmt.setInt(1, id);
-            int affectedRows = stmt.executeUpdate();
-            
-            if (affectedRows > 0) {
+        long start = REMOVE_PRODUCT.start();
+        try {
+            if (Repositories.products().delete(id)) {
+                StockReservation.productRemoved(id);
                 // Remove from cache if exists
-                products.removeIf(p -> p.getId() == id);
+                uncacheProduct(id);
             }
+            REMOVE_PRODUCT.stop(start);
         } catch (SQLException e) {
+            REMOVE_PRODUCT.failed(start);
             System.err.println("Error removing product from database");
             e.printStackTrace();
         }
@@ -71,31 +83,25 @@ public class ECommerceStore {
 
     public static Product getProductById(int id) {
         // First try to find in the cache
-        for (Product p : products) {
-            if (p.getId() == id) {
-                return p;
-            }
+        Product cached = products.get(id);
+        if (cached != null) {
+            PRODUCT_CACHE.hit();
+            return cached;
         }
+        PRODUCT_CACHE.miss();
         
-        // If not in cache, try to fetch from database
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM products WHERE id = ?")) {
-            
-            stmt.setInt(1, id);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    String name = rs.getString("name");
-                    double price = rs.getDouble("price");
-                    int quantity = rs.getInt("quantity");
-                    
-                    Product product = new Product(id, name, price, quantity);
-                    // Add to cache
-                    products.add(product);
-                    return product;
-                }
+        // If not in cache, try to fetch from the repository
+        long start = GET_PRODUCT.start();
+        try {
+            Product product = Repositories.products().findById(id);
+            if (product != null) {
+                // Add to cache
+                cacheProduct(product);
             }
+            GET_PRODUCT.stop(start);
+            return product;
         } catch (SQLException e) {
+            GET_PRODUCT.failed(start);
             System.err.println("Error fetching product from database");
             e.printStackTrace();
         }
@@ -103,54 +109,313 @@ public class ECommerceStore {
         return null;
     }
     
-    public static List<Product> getAllProducts() {
-        products.clear(); // Clear cache to refresh from database
+    public static int countProducts() {
+        try {
+            return Repositories.products().count();
+        } catch (SQLException e) {
+            System.err.println("Error counting products in database");
+            e.printStackTrace();
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Returns up to limit products ordered by id, starting at the given row offset.
+     */
+    public static List<Product> getProductsPage(int offset, int limit) {
+        long start = PRODUCT_PAGE.start();
+        try {
+            List<Product> page = Repositories.products().findPage(offset, limit);
+            PRODUCT_PAGE.stop(start);
+            return page;
+        } catch (SQLException e) {
+            PRODUCT_PAGE.failed(start);
+            System.err.println("Error fetching product page from database");
+            e.printStackTrace();
+        }
+        
+        return new ArrayList<>();
+    }
+    
+    /**
+     * Keyset pagination: returns up to limit products that sort after the given
+     * product in the given order, or the first page when after is null. Unlike
+     * OFFSET paging, the cost does not grow with how deep the page is.
+     */
+    public static List<Product> getProductsAfter(ProductOrder order, Product after, int limit) {
+        long start = PRODUCT_PAGE.start();
+        try {
+            List<Product> page = Repositories.products().findAfter(order, after, limit);
+            PRODUCT_PAGE.stop(start);
+            return page;
+        } catch (SQLException e) {
+            PRODUCT_PAGE.failed(start);
+            System.err.println("Error fetching product page from database");
+            e.printStackTrace();
+        }
         
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT * FROM products")) {
-            
-            while (rs.next()) {
-                int id = rs.getInt("id");
-                String name = rs.getString("name");
-                double price = rs.getDouble("price");
-                int quantity = rs.getInt("quantity");
-                
-                products.add(new Product(id, name, price, quantity));
+        return new ArrayList<>();
+    }
+    
+    /**
+     * Streams every product in the given order to the consumer without building a
+     * list. Rows are fetched from the server in chunks, so heap use stays bounded.
+     * Returns the number of products streamed.
+     */
+    public static long streamProducts(ProductOrder order, Consumer<Product> consumer) throws SQLException {
+        return Repositories.products().stream(order, consumer);
+    }
+    
+    /**
+     * Ranked name search over the catalog, tolerant of prefixes and small typos.
+     * Loads the catalog into memory on first use.
+     */
+    public static List<Product> searchProducts(String query, int limit) {
+        ensureCatalogLoaded();
+        long start = SEARCH.start();
+        ProductIndex current = products;
+        List<Product> found = searchIndex.search(query, limit, current::get);
+        SEARCH.stop(start);
+        return found;
+    }
+    
+    /**
+     * Products priced between min and max inclusive, cheapest first.
+     */
+    public static List<Product> getProductsInPriceRange(double min, double max, boolean inStockOnly, int limit) {
+        ensureCatalogLoaded();
+        long start = PRICE_QUERY.start();
+        List<Product> found = priceIndex.range(min, max, inStockOnly, limit);
+        PRICE_QUERY.stop(start);
+        return found;
+    }
+    
+    public static List<Product> getCheapestProducts(int limit, boolean inStockOnly) {
+        ensureCatalogLoaded();
+        long start = PRICE_QUERY.start();
+        List<Product> found = priceIndex.cheapest(inStockOnly, limit);
+        PRICE_QUERY.stop(start);
+        return found;
+    }
+    
+    public static List<Product> getMostExpensiveProducts(int limit, boolean inStockOnly) {
+        ensureCatalogLoaded();
+        long start = PRICE_QUERY.start();
+        List<Product> found = priceIndex.mostExpensive(inStockOnly, limit);
+        PRICE_QUERY.stop(start);
+        return found;
+    }
+    
+    private static void ensureCatalogLoaded() {
+        if (!catalogLoaded) {
+            syncCatalog();
+        }
+    }
+    
+    // Cache maintenance: every change to the cached catalog goes through these,
+    // so the secondary indexes stay consistent with it and open views hear of it
+    
+    private static void cacheProduct(Product product) {
+        products.put(product);
+        searchIndex.index(product);
+        priceIndex.update(product);
+    }
+    
+    private static void uncacheProduct(int id) {
+        products.remove(id);
+        searchIndex.remove(id);
+        priceIndex.remove(id);
+        StockChangeBus.catalogChanged();
+    }
+    
+    private static void applyToCache(int id, String name, double price, int quantity) {
+        Product cached = products.get(id);
+        if (cached == null) {
+            cacheProduct(new Product(id, name, price, quantity));
+            StockChangeBus.catalogChanged();
+            return;
+        }
+        // Update in place so references held by the GUI stay current, under the
+        // stock lock that reservations adjust the quantity with
+        boolean[] changed = new boolean[1];
+        StockReservation.withStockLock(id, () -> {
+            if (cached.getName().equals(name) && cached.getPrice() == price && cached.getQuantity() == quantity) {
+                return; // Seen before, e.g. read again by a catalog sync
             }
+            cached.setName(name);
+            cached.setPrice(price);
+            cached.setQuantity(quantity);
+            changed[0] = true;
+        });
+        if (!changed[0]) {
+            return;
+        }
+        searchIndex.index(cached);
+        priceIndex.update(cached);
+        StockChangeBus.productChanged(cached);
+    }
+    
+    /**
+     * Re-files a cached product after its stock changed in place.
+     */
+    static void stockChanged(Product cached) {
+        priceIndex.update(cached);
+        StockChangeBus.productChanged(cached);
+    }
+    
+    /**
+     * Returns the cached product without falling back to the database.
+     */
+    static Product getCachedProduct(int id) {
+        return products.get(id);
+    }
+    
+    public static List<Product> getAllProducts() {
+        syncCatalog();
+        return products.values(); // A fresh list, so callers cannot modify the cache
+    }
+    
+    /**
+     * Brings the cache up to date, fetching only products changed since the last sync.
+     */
+    public static void syncCatalog() {
+        long start = SYNC.start();
+        synchronized (SYNC_LOCK) {
+            // Every session reads stock from the cache, so it is filled from the primary:
+            // a lagging replica would write older quantities over newer ones
+            ReadRouting.readFromPrimary(true);
+            try {
+                boolean stale = System.currentTimeMillis() - lastSyncAt > FULL_RELOAD_AFTER_MS;
+                if (lastChangeId < 0 || stale || !applyChanges()) {
+                    reloadAllProducts();
+                }
+            } finally {
+                ReadRouting.readFromPrimary(false);
+            }
+        }
+        SYNC.stop(start);
+    }
+    
+    /**
+     * Rebuilds the cache from the database in one pass, e.g. after a bulk import
+     * wrote past it.
+     */
+    public static void reloadCatalog() {
+        synchronized (SYNC_LOCK) {
+            ReadRouting.readFromPrimary(true);
+            try {
+                reloadAllProducts();
+            } finally {
+                ReadRouting.readFromPrimary(false);
+            }
+        }
+    }
+    
+    /**
+     * Whether a sync can fetch just the changes, rather than reloading everything.
+     */
+    static boolean tracksChanges() {
+        return changesTracked;
+    }
+    
+    private static boolean applyChanges() {
+        try {
+            lastChangeId = Repositories.products().changesSince(lastChangeId, (id, current) -> {
+                if (current == null) {
+                    // Deletions are read again for a while, only the first one counts
+                    if (products.get(id) != null) {
+                        uncacheProduct(id);
+                    }
+                } else {
+                    applyToCache(id, current.getName(), current.getPrice(),
+                            current.getQuantity() + StockReservation.leasedQuantity(id));
+                }
+            });
+            lastSyncAt = System.currentTimeMillis();
+            return true;
         } catch (SQLException e) {
+            System.err.println("Error fetching product changes from database");
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    private static void reloadAllProducts() {
+        long start = RELOAD.start();
+        List<Product> loaded = new ArrayList<>();
+        long changeId;
+        
+        try {
+            // Read the version first so changes made during the load are picked up next time
+            changeId = Repositories.products().currentVersion();
+            Repositories.products().stream(ProductOrder.ID, loaded::add);
+        } catch (SQLException e) {
+            RELOAD.failed(start);
             System.err.println("Error fetching products from database");
             e.printStackTrace();
+            return;
         }
         
-        return new ArrayList<>(products); // Return a copy to protect the original list
+        // Build the refreshed indexes off to the side so readers never see them half-filled
+        ProductIndex refreshed = new ProductIndex(loaded.size());
+        ProductSearchIndex refreshedSearch = new ProductSearchIndex();
+        PriceIndex refreshedPrices = new PriceIndex();
+        for (Product p : loaded) {
+            // Units leased into this process are still for sale
+            int leased = StockReservation.leasedQuantity(p.getId());
+            if (leased > 0) {
+                p.setQuantity(p.getQuantity() + leased);
+            }
+            refreshed.put(p);
+            refreshedSearch.index(p);
+            refreshedPrices.update(p);
+        }
+        ProductIndex previous = products;
+        products = refreshed;
+        searchIndex = refreshedSearch;
+        priceIndex = refreshedPrices;
+        catalogLoaded = true;
+        changesTracked = changeId >= 0;
+        publishReload(previous, loaded);
+        lastChangeId = changeId;
+        lastSyncAt = System.currentTimeMillis();
+        RELOAD.stop(start);
+    }
+    
+    // Tells open views what a full reload changed, product by product where it can
+    private static void publishReload(ProductIndex previous, List<Product> loaded) {
+        if (previous.size() != loaded.size()) {
+            StockChangeBus.catalogChanged();
+            return;
+        }
+        for (Product p : loaded) {
+            Product old = previous.get(p.getId());
+            if (old == null) {
+                StockChangeBus.catalogChanged();
+                return;
+            }
+            if (old.getQuantity() != p.getQuantity() || old.getPrice() != p.getPrice()
+                    || !old.getName().equals(p.getName())) {
+                StockChangeBus.productChanged(p);
+            }
+        }
     }
     
     public static boolean updateProduct(int id, String name, double price, int quantity) {
-        try (Connection conn = DatabaseConnection.getInstance().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "UPDATE products SET name = ?, price = ?, quantity = ? WHERE id = ?")) {
-            
-            stmt.setString(1, name);
-            stmt.setDouble(2, price);
-            stmt.setInt(3, quantity);
-            stmt.setInt(4, id);
-            
-            int affectedRows = stmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                // Update in cache if exists
-                for (Product p : products) {
-                    if (p.getId() == id) {
-                        p.setName(name);
-                        p.setPrice(price);
-                        p.setQuantity(quantity);
-                        break;
-                    }
-                }
-                return true;
+        long start = UPDATE_PRODUCT.start();
+        try {
+            boolean updated = Repositories.products().update(id, name, price, quantity);
+            if (updated) {
+                // The new quantity replaces whatever this process had leased
+                StockReservation.discardLease(id);
+                // Update in cache
+                applyToCache(id, name, price, quantity);
             }
+            UPDATE_PRODUCT.stop(start);
+            return updated;
         } catch (SQLException e) {
+            UPDATE_PRODUCT.failed(start);
             System.err.println("Error updating product in database");
             e.printStackTrace();
         }
@@ -158,6 +423,38 @@ public class ECommerceStore {
         return false;
     }
     
+    /**
+     * Applies several stock changes (productId -> delta) in one transaction and one
+     * JDBC batch. Either every delta is applied or none is; a delta that would take
+     * a product below zero stock rolls the whole batch back.
+     */
+    public static boolean adjustStock(Map<Integer, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return true;
+        }
+        
+        long start = ADJUST_STOCK.start();
+        try {
+            // Releases go back to the in-memory leases when write-behind inventory is on
+            boolean adjusted = StockReservation.releaseLeased(deltas)
+                    || Repositories.products().adjustStock(deltas);
+            ADJUST_STOCK.stop(start);
+            if (!adjusted) {
+                return false;
+            }
+        } catch (SQLException e) {
+            ADJUST_STOCK.failed(start);
+            System.err.println("Error adjusting product stock in database");
+            e.printStackTrace();
+            return false;
+        }
+        
+        for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+            StockReservation.adjustCachedQuantity(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+    
     public static void saveProducts() {
         // This method is kept for compatibility but does nothing
         // as changes are immediately saved to the database
@@ -0,0 +1,156 @@
+package Store;
+
+import Models.Order;
+import Models.OrderItem;
+import utils.Metrics;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single background writer that commits orders in groups.
+ *
+ * Checkouts that arrive while a commit is in flight are coalesced into the next
+ * transaction, so many orders share one commit (and one log flush) while each
+ * caller still gets its own order id or error once the data is durable.
+ */
+class GroupCommitOrderWriter {
+    private static final int MAX_BATCH = Integer.getInteger("ecommerce.orders.maxBatch", 256);
+    // Short linger so near-simultaneous checkouts join the same group
+    private static final long LINGER_MS = Long.getLong("ecommerce.orders.lingerMs", 2);
+
+    private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+    private final Metrics.Timer commitTimer = Metrics.timer("store.commitOrders");
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    GroupCommitOrderWriter() {
+        writer = new Thread(this::run, "order-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+        Metrics.gauge("orders.queued", queue::size);
+    }
+
+    CompletableFuture<Order> submit(String username, List<OrderItem> items) {
+        PendingOrder pending = new PendingOrder(username, items);
+        if (!running) {
+            pending.result.completeExceptionally(new IllegalStateException("Order writer is shut down"));
+            return pending.result;
+        }
+        queue.add(pending);
+        return pending.result;
+    }
+
+    /**
+     * Stops accepting orders and commits whatever is still queued.
+     */
+    void shutdown() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        ReadRouting.bindOwnSession();
+        List<PendingOrder> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = running ? queue.take() : queue.poll();
+                if (first == null) {
+                    break;
+                }
+                batch.add(first);
+                collectGroup(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested; commit what we have, then drain the queue
+            }
+            if (!batch.isEmpty()) {
+                commitGroup(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void collectGroup(List<PendingOrder> batch) throws InterruptedException {
+        queue.drainTo(batch, MAX_BATCH - batch.size());
+        if (LINGER_MS <= 0 || !running) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MS);
+        while (batch.size() < MAX_BATCH) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, MAX_BATCH - batch.size());
+        }
+    }
+
+    private void commitGroup(List<PendingOrder> batch) {
+        long start = commitTimer.start();
+        try {
+            List<Integer> ids = insertOrders(batch);
+            commitTimer.stop(start);
+            for (int i = 0; i < batch.size(); i++) {
+                PendingOrder pending = batch.get(i);
+                // The order is the customer's write: their next reads should see it
+                ReadRouting.wrote(pending.session);
+                pending.result.complete(new Order(ids.get(i), pending.username, pending.items));
+            }
+        } catch (SQLException e) {
+            commitTimer.failed(start);
+            if (batch.size() == 1) {
+                System.err.println("Error saving order to database");
+                e.printStackTrace();
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // One bad order must not fail the whole group: retry each on its own
+            for (PendingOrder pending : batch) {
+                commitGroup(List.of(pending));
+            }
+        } catch (RuntimeException e) {
+            commitTimer.failed(start);
+            // Keep the writer thread alive; callers see the failure
+            e.printStackTrace();
+            for (PendingOrder pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private List<Integer> insertOrders(List<PendingOrder> batch) throws SQLException {
+        List<Order> orders = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch) {
+            orders.add(new Order(0, pending.username, pending.items));
+        }
+        return Repositories.orders().insertAll(orders);
+    }
+
+    private static class PendingOrder {
+        final String username;
+        final List<OrderItem> items;
+        final CompletableFuture<Order> result = new CompletableFuture<>();
+        // Created on the submitting thread
+        final Object session = ReadRouting.currentSession();
+
+        PendingOrder(String username, List<OrderItem> items) {
+            this.username = username;
+            this.items = items;
+        }
+    }
+}
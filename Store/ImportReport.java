@@ -0,0 +1,60 @@
+package Store;
+
+import java.nio.file.Path;
+
+/**
+ * Progress or final outcome of a bulk product import.
+ */
+public class ImportReport {
+    private final long rowsRead;
+    private final long imported;
+    private final long rejected;
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long elapsedMs;
+    private final Path rejectFile;
+    private final boolean finished;
+
+    ImportReport(long rowsRead, long imported, long rejected, long bytesRead, long totalBytes,
+                 long elapsedMs, Path rejectFile, boolean finished) {
+        this.rowsRead = rowsRead;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.elapsedMs = elapsedMs;
+        this.rejectFile = rejectFile;
+        this.finished = finished;
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getImported() { return imported; }
+    public long getRejected() { return rejected; }
+    public long getElapsedMs() { return elapsedMs; }
+    public boolean isFinished() { return finished; }
+
+    /**
+     * File listing the rejected rows and why, or null if there were none.
+     */
+    public Path getRejectFile() { return rejectFile; }
+
+    /**
+     * Share of the file read so far, 0 to 100.
+     */
+    public int getPercentDone() {
+        if (finished || totalBytes == 0) {
+            return finished ? 100 : 0;
+        }
+        return (int) Math.min(100, bytesRead * 100 / totalBytes);
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format("%s %,d of %,d rows, %,d rejected, in %.1f s",
+                finished ? "Imported" : "Importing:", imported, rowsRead, rejected, elapsedMs / 1000.0);
+        if (!finished) {
+            return summary + " (" + getPercentDone() + "% read)";
+        }
+        return rejectFile == null ? summary : summary + "; see " + rejectFile;
+    }
+}
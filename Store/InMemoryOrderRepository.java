@@ -0,0 +1,40 @@
+package Store;
+
+import Interfaces.OrderRepository;
+import Models.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Order storage on the heap; orders are lost on restart.
+ */
+class InMemoryOrderRepository implements OrderRepository {
+    // Sorted so stream() walks the orders in id order
+    private final Map<Integer, Order> orders = new ConcurrentSkipListMap<>();
+    private int nextId = 1;
+
+    @Override
+    public synchronized List<Integer> insertAll(List<Order> batch) {
+        List<Integer> ids = new ArrayList<>(batch.size());
+        for (Order order : batch) {
+            int id = nextId++;
+            orders.put(id, new Order(id, order.getUsername(), order.getItems()));
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    @Override
+    public long stream(Consumer<Order> consumer) {
+        long count = 0;
+        for (Order order : orders.values()) {
+            consumer.accept(order);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,189 @@
+package Store;
+
+import Interfaces.ProductRepository;
+import Models.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Product storage on the heap, for single-node runs and benchmarks without a
+ * database. Nothing survives a restart.
+ *
+ * Stored products are never modified: writers swap in a new object under the
+ * instance lock, so readers need no locking and callers get their own copies.
+ */
+class InMemoryProductRepository implements ProductRepository {
+    private final ConcurrentSkipListMap<Integer, Product> products = new ConcurrentSkipListMap<>();
+    private int nextId = 1;
+
+    @Override
+    public synchronized int insert(String name, double price, int quantity) {
+        int id = nextId++;
+        products.put(id, new Product(id, name, price, quantity));
+        return id;
+    }
+
+    @Override
+    public synchronized List<Integer> insertAll(List<Product> batch) {
+        List<Integer> ids = new ArrayList<>(batch.size());
+        for (Product product : batch) {
+            ids.add(insert(product.getName(), product.getPrice(), product.getQuantity()));
+        }
+        return ids;
+    }
+
+    @Override
+    public synchronized boolean update(int id, String name, double price, int quantity) {
+        return products.replace(id, new Product(id, name, price, quantity)) != null;
+    }
+
+    @Override
+    public synchronized boolean delete(int id) {
+        return products.remove(id) != null;
+    }
+
+    @Override
+    public Product findById(int id) {
+        return copy(products.get(id));
+    }
+
+    @Override
+    public int count() {
+        return products.size();
+    }
+
+    @Override
+    public List<Product> findPage(int offset, int limit) {
+        List<Product> page = new ArrayList<>(limit);
+        int skipped = 0;
+        for (Product product : products.values()) {
+            if (skipped++ < offset) {
+                continue;
+            }
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(copy(product));
+        }
+        return page;
+    }
+
+    @Override
+    public List<Product> findAfter(ProductOrder order, Product after, int limit) {
+        if (order == ProductOrder.ID) {
+            Iterable<Product> tail = after == null ? products.values()
+                    : products.tailMap(after.getId(), false).values();
+            List<Product> page = new ArrayList<>(limit);
+            for (Product product : tail) {
+                if (page.size() >= limit) {
+                    break;
+                }
+                page.add(copy(product));
+            }
+            return page;
+        }
+
+        List<Product> page = smallestAfter(products.values(), order.comparator(), after, limit);
+        page.replaceAll(InMemoryProductRepository::copy);
+        return page;
+    }
+
+    /**
+     * The limit smallest products sorting after the cursor, in order. Used where
+     * there is no index on the sort order, so every product is looked at once.
+     */
+    static List<Product> smallestAfter(Iterable<Product> products, Comparator<Product> comparator,
+                                       Product after, int limit) {
+        PriorityQueue<Product> smallest = new PriorityQueue<>(limit + 1, comparator.reversed());
+        for (Product product : products) {
+            if (after != null && comparator.compare(product, after) <= 0) {
+                continue;
+            }
+            smallest.add(product);
+            if (smallest.size() > limit) {
+                smallest.poll();
+            }
+        }
+        List<Product> page = new ArrayList<>(smallest);
+        page.sort(comparator);
+        return page;
+    }
+
+    @Override
+    public long stream(ProductOrder order, Consumer<Product> consumer) {
+        if (order == ProductOrder.ID) {
+            long count = 0;
+            for (Product product : products.values()) {
+                consumer.accept(copy(product));
+                count++;
+            }
+            return count;
+        }
+        List<Product> sorted = new ArrayList<>(products.values());
+        sorted.sort(order.comparator());
+        for (Product product : sorted) {
+            consumer.accept(copy(product));
+        }
+        return sorted.size();
+    }
+
+    @Override
+    public long currentVersion() {
+        return 0; // Only this process writes, so the caller's cache never falls behind
+    }
+
+    @Override
+    public long changesSince(long version, BiConsumer<Integer, Product> changed) {
+        return version;
+    }
+
+    @Override
+    public synchronized boolean tryReserve(int id, int quantity) {
+        Product product = products.get(id);
+        if (product == null || product.getQuantity() < quantity) {
+            return false;
+        }
+        products.put(id, withQuantity(product, product.getQuantity() - quantity));
+        return true;
+    }
+
+    @Override
+    public int findQuantity(int id) {
+        Product product = products.get(id);
+        return product == null ? -1 : product.getQuantity();
+    }
+
+    @Override
+    public synchronized boolean adjustStock(Map<Integer, Integer> deltas) {
+        // Check everything first so a failure leaves all stock untouched
+        for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null ? entry.getValue() < 0 : product.getQuantity() + entry.getValue() < 0) {
+                return false;
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                continue; // Deleted: returned stock has nowhere to go
+            }
+            products.put(product.getId(), withQuantity(product, product.getQuantity() + entry.getValue()));
+        }
+        return true;
+    }
+
+    private static Product withQuantity(Product product, int quantity) {
+        return new Product(product.getId(), product.getName(), product.getPrice(), quantity);
+    }
+
+    private static Product copy(Product product) {
+        return product == null ? null : withQuantity(product, product.getQuantity());
+    }
+}
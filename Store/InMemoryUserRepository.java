@@ -0,0 +1,42 @@
+package Store;
+
+import Interfaces.UserRepository;
+import Models.User;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * User storage on the heap; accounts are lost on restart.
+ */
+class InMemoryUserRepository implements UserRepository {
+    // username -> {password hash, type}
+    private final Map<String, String[]> accounts = new ConcurrentHashMap<>();
+
+    @Override
+    public User findByUsername(String username) {
+        String[] account = accounts.get(username);
+        return account == null ? null : SqlUserRepository.toUser(username, account[0], account[1]);
+    }
+
+    @Override
+    public boolean insert(String username, String passwordHash, String type) {
+        return accounts.putIfAbsent(username, new String[] {passwordHash, type}) == null;
+    }
+
+    @Override
+    public boolean updatePassword(String username, String passwordHash) {
+        return accounts.computeIfPresent(username, (name, account) -> new String[] {passwordHash, account[1]}) != null;
+    }
+
+    @Override
+    public int countByType(String type) {
+        int count = 0;
+        for (String[] account : accounts.values()) {
+            if (account[1].equals(type)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,716 @@
+package Store;
+
+import Interfaces.ProductRepository;
+import Models.Product;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Product storage in an append-only log of fixed-size records, memory-mapped so
+ * that writes are plain stores into the page cache and reads decode straight from
+ * the mapping without a system call.
+ *
+ * Every change appends the full new state of the product (or a delete marker) and
+ * an in-memory index points each id at its latest record. On startup the log is
+ * replayed to rebuild the index; a record torn by a crash fails its CRC and is cut
+ * off together with the rest of its change. Superseded records are dropped by
+ * periodically rewriting the live ones into the next log generation.
+ *
+ * Appends survive a process crash as soon as they return; the mapping is forced
+ * to disk every ecommerce.log.forceIntervalMs, which bounds what a power loss can
+ * take. Only one process may open the directory at a time; a lock on
+ * product-log.lock, held until close(), makes a second one fail to open it.
+ */
+class LogProductRepository implements ProductRepository {
+    private static final int RECORD_SIZE = 256;
+    private static final int INITIAL_CAPACITY = 4096 * RECORD_SIZE;
+    // One mapping is limited to 2GB, about 8 million records
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / RECORD_SIZE * RECORD_SIZE;
+
+    // Record layout; slot 0 is the file header, products start at slot 1
+    private static final int CRC_OFFSET = 0;         // int, CRC32 of the rest of the record
+    private static final int TYPE_OFFSET = 4;        // byte
+    private static final int FLAGS_OFFSET = 5;       // byte
+    private static final int NAME_LENGTH_OFFSET = 6; // short, UTF-8 bytes
+    private static final int SEQUENCE_OFFSET = 8;    // long, increases with every record
+    private static final int ID_OFFSET = 16;         // int
+    private static final int QUANTITY_OFFSET = 20;   // int
+    private static final int PRICE_OFFSET = 24;      // double
+    private static final int NAME_OFFSET = 32;
+    static final int MAX_NAME_BYTES = RECORD_SIZE - NAME_OFFSET;
+
+    // Header layout after the CRC and type
+    private static final int MAGIC_OFFSET = 8;
+    private static final int VERSION_OFFSET = 12;
+    private static final int RECORD_SIZE_OFFSET = 16;
+    private static final int NEXT_ID_OFFSET = 20;
+    private static final int MAGIC = 0x45434C47; // "ECLG"
+    private static final int FORMAT_VERSION = 1;
+
+    // A zero type marks the unused space after the last record
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_HEADER = 3;
+    // More records of the same change follow; replay applies a change only once it is complete
+    private static final byte FLAG_CONTINUED = 1;
+
+    private static final long FORCE_INTERVAL_MS = Long.getLong("ecommerce.log.forceIntervalMs", 1_000);
+    private static final long COMPACT_INTERVAL_MS = Long.getLong("ecommerce.log.compactIntervalMs", 60_000);
+    // Compact once superseded records outnumber live ones and there are at least this many
+    private static final int COMPACT_MIN_GARBAGE = Integer.getInteger("ecommerce.log.compactMinRecords", 10_000);
+
+    private static final String PREFIX = "products.";
+    private static final String SUFFIX = ".log";
+    // Outside PREFIX, so that open() does not take it for a stale file
+    private static final String LOCK_FILE = "product-log.lock";
+
+    private final Path directory;
+    private final FileChannel lock;
+    private final boolean created;
+    private final ScheduledExecutorService maintenance;
+    // Replaced as a whole by compaction, so readers see one consistent file and index
+    private volatile Segment segment;
+    private int nextId;
+    private long sequence;
+    private volatile boolean dirty;
+
+    private LogProductRepository(Path directory, FileChannel lock, Segment segment, boolean created, int nextId,
+                                 long sequence) {
+        this.directory = directory;
+        this.lock = lock;
+        this.segment = segment;
+        this.created = created;
+        this.nextId = nextId;
+        this.sequence = sequence;
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "product-log-maintenance");
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.scheduleWithFixedDelay(this::force, FORCE_INTERVAL_MS, FORCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(this::compactIfWorthwhile,
+                COMPACT_INTERVAL_MS, COMPACT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the newest log generation in the directory, recovering it after a
+     * crash, or starts an empty log.
+     */
+    static LogProductRepository open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel lock = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            if (!tryLock(lock)) {
+                throw new IOException("Product log in " + directory + " is in use by another process");
+            }
+            return open(directory, lock);
+        } catch (IOException | RuntimeException e) {
+            // Also releases the lock
+            lock.close();
+            throw e;
+        }
+    }
+
+    private static boolean tryLock(FileChannel lock) throws IOException {
+        try {
+            return lock.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            return false; // Open in this process already
+        }
+    }
+
+    private static LogProductRepository open(Path directory, FileChannel lock) throws IOException {
+        Path latest = null;
+        long latestGeneration = 0;
+        List<Path> stale = new ArrayList<>();
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(SUFFIX)) {
+                    stale.add(file); // Unfinished compaction output
+                    continue;
+                }
+                long generation = generation(file);
+                if (generation > latestGeneration) {
+                    if (latest != null) {
+                        stale.add(latest);
+                    }
+                    latest = file;
+                    latestGeneration = generation;
+                } else {
+                    stale.add(file);
+                }
+            }
+        }
+        for (Path file : stale) {
+            Files.deleteIfExists(file);
+        }
+
+        boolean created = latest == null;
+        if (created) {
+            latest = directory.resolve(PREFIX + 1 + SUFFIX);
+            writeHeader(latest, 1);
+        }
+        Segment segment = Segment.map(latest, latestGeneration == 0 ? 1 : latestGeneration);
+
+        ByteBuffer buffer = segment.buffer;
+        if (buffer.get(TYPE_OFFSET) != TYPE_HEADER || buffer.getInt(CRC_OFFSET) != checksum(buffer, 0)
+                || buffer.getInt(MAGIC_OFFSET) != MAGIC || buffer.getInt(VERSION_OFFSET) != FORMAT_VERSION
+                || buffer.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+            segment.close();
+            throw new IOException(latest + " is not a product log of this version");
+        }
+
+        int nextId = buffer.getInt(NEXT_ID_OFFSET);
+        long sequence = 0;
+        int slots = segment.capacity / RECORD_SIZE;
+        int slot = 1;
+        int changeStart = 1;
+        List<Integer> change = new ArrayList<>();
+
+        for (; slot < slots; slot++) {
+            int offset = slot * RECORD_SIZE;
+            byte type = buffer.get(offset + TYPE_OFFSET);
+            if (type == 0) {
+                break;
+            }
+            long recordSequence = buffer.getLong(offset + SEQUENCE_OFFSET);
+            if ((type != TYPE_PUT && type != TYPE_DELETE) || recordSequence <= sequence
+                    || buffer.getInt(offset + CRC_OFFSET) != checksum(buffer, offset)) {
+                break; // Torn by a crash mid-write
+            }
+            sequence = recordSequence;
+            if (change.isEmpty()) {
+                changeStart = slot;
+            }
+            change.add(slot);
+            if ((buffer.get(offset + FLAGS_OFFSET) & FLAG_CONTINUED) == 0) {
+                for (int changed : change) {
+                    int id = buffer.getInt(changed * RECORD_SIZE + ID_OFFSET);
+                    if (buffer.get(changed * RECORD_SIZE + TYPE_OFFSET) == TYPE_PUT) {
+                        segment.slots.put(id, changed);
+                    } else {
+                        segment.slots.remove(id);
+                    }
+                    nextId = Math.max(nextId, id + 1);
+                }
+                change.clear();
+            }
+        }
+
+        // Anything after the last complete change is wiped, so later appends never
+        // sit in front of leftovers that replay could mistake for records
+        int end = change.isEmpty() ? slot : changeStart;
+        int discarded = 0;
+        byte[] empty = new byte[RECORD_SIZE];
+        for (int s = end; s < slots; s++) {
+            if (buffer.get(s * RECORD_SIZE + TYPE_OFFSET) != 0) {
+                buffer.put(s * RECORD_SIZE, empty);
+                discarded++;
+            }
+        }
+        if (discarded > 0) {
+            segment.buffer.force();
+            System.err.println("Product log " + latest + ": discarded " + discarded
+                    + " incomplete record(s) left by a crash");
+        }
+        segment.nextSlot = end;
+
+        return new LogProductRepository(directory, lock, segment, created, nextId, sequence);
+    }
+
+    /**
+     * True if open() started a new, empty log.
+     */
+    boolean isNew() {
+        return created;
+    }
+
+    @Override
+    public synchronized int insert(String name, double price, int quantity) throws SQLException {
+        byte[] encoded = encode(name);
+        reserve(1);
+        int id = nextId;
+        append(TYPE_PUT, false, id, encoded, price, quantity);
+        nextId++;
+        return id;
+    }
+
+    @Override
+    public synchronized List<Integer> insertAll(List<Product> products) throws SQLException {
+        List<byte[]> names = new ArrayList<>(products.size());
+        for (Product product : products) {
+            names.add(encode(product.getName()));
+        }
+        // One change, so a crash part way through leaves none of it
+        reserve(products.size());
+        List<Integer> ids = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            append(TYPE_PUT, i < products.size() - 1, nextId, names.get(i), product.getPrice(), product.getQuantity());
+            ids.add(nextId++);
+        }
+        return ids;
+    }
+
+    @Override
+    public synchronized boolean update(int id, String name, double price, int quantity) throws SQLException {
+        byte[] encoded = encode(name);
+        if (!segment.slots.containsKey(id)) {
+            return false;
+        }
+        reserve(1);
+        append(TYPE_PUT, false, id, encoded, price, quantity);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean delete(int id) throws SQLException {
+        if (!segment.slots.containsKey(id)) {
+            return false;
+        }
+        reserve(1);
+        append(TYPE_DELETE, false, id, new byte[0], 0, 0);
+        return true;
+    }
+
+    @Override
+    public Product findById(int id) {
+        Segment current = segment;
+        Integer slot = current.slots.get(id);
+        return slot == null ? null : current.read(slot);
+    }
+
+    @Override
+    public int count() {
+        return segment.slots.size();
+    }
+
+    @Override
+    public List<Product> findPage(int offset, int limit) {
+        Segment current = segment;
+        List<Product> page = new ArrayList<>(limit);
+        int skipped = 0;
+        for (int slot : current.slots.values()) {
+            if (skipped++ < offset) {
+                continue;
+            }
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(current.read(slot));
+        }
+        return page;
+    }
+
+    @Override
+    public List<Product> findAfter(ProductOrder order, Product after, int limit) {
+        Segment current = segment;
+        if (order == ProductOrder.ID) {
+            Iterable<Integer> tail = after == null ? current.slots.values()
+                    : current.slots.tailMap(after.getId(), false).values();
+            List<Product> page = new ArrayList<>(limit);
+            for (int slot : tail) {
+                if (page.size() >= limit) {
+                    break;
+                }
+                page.add(current.read(slot));
+            }
+            return page;
+        }
+        return InMemoryProductRepository.smallestAfter(current.products(), order.comparator(), after, limit);
+    }
+
+    @Override
+    public long stream(ProductOrder order, Consumer<Product> consumer) {
+        Segment current = segment;
+        if (order == ProductOrder.ID) {
+            long count = 0;
+            for (Product product : current.products()) {
+                consumer.accept(product);
+                count++;
+            }
+            return count;
+        }
+        List<Product> sorted = new ArrayList<>(current.slots.size());
+        current.products().forEach(sorted::add);
+        sorted.sort(order.comparator());
+        sorted.forEach(consumer);
+        return sorted.size();
+    }
+
+    @Override
+    public long currentVersion() {
+        return 0; // Only this process writes, so the caller's cache never falls behind
+    }
+
+    @Override
+    public long changesSince(long version, BiConsumer<Integer, Product> changed) {
+        return version;
+    }
+
+    @Override
+    public synchronized boolean tryReserve(int id, int quantity) throws SQLException {
+        Integer slot = segment.slots.get(id);
+        if (slot == null) {
+            return false;
+        }
+        int available = segment.quantity(slot);
+        if (available < quantity) {
+            return false;
+        }
+        reserve(1);
+        copyWithQuantity(segment.slots.get(id), available - quantity, false);
+        return true;
+    }
+
+    @Override
+    public int findQuantity(int id) {
+        Segment current = segment;
+        Integer slot = current.slots.get(id);
+        return slot == null ? -1 : current.quantity(slot);
+    }
+
+    @Override
+    public synchronized boolean adjustStock(Map<Integer, Integer> deltas) throws SQLException {
+        // Check everything first so a failure leaves all stock untouched
+        Map<Integer, Integer> applicable = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+            Integer slot = segment.slots.get(entry.getKey());
+            if (slot == null) {
+                if (entry.getValue() < 0) {
+                    return false;
+                }
+                continue; // Deleted: returned stock has nowhere to go
+            }
+            if (segment.quantity(slot) + entry.getValue() < 0) {
+                return false;
+            }
+            applicable.put(entry.getKey(), entry.getValue());
+        }
+        if (applicable.isEmpty()) {
+            return true;
+        }
+        // Room for the whole change up front, so compaction cannot split it
+        reserve(applicable.size());
+        int remaining = applicable.size();
+        for (Map.Entry<Integer, Integer> entry : applicable.entrySet()) {
+            int slot = segment.slots.get(entry.getKey());
+            copyWithQuantity(slot, segment.quantity(slot) + entry.getValue(), --remaining > 0);
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites the live records into the next log generation if enough of the
+     * current one is superseded. Writers wait while it runs; readers do not.
+     */
+    synchronized void compactIfWorthwhile() {
+        Segment current = segment;
+        int garbage = current.nextSlot - 1 - current.slots.size();
+        if (garbage < COMPACT_MIN_GARBAGE || garbage < current.slots.size()) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("Error compacting the product log");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forces pending appends to disk and stops the background work.
+     */
+    void close() {
+        maintenance.shutdown();
+        synchronized (this) {
+            force();
+            segment.close();
+            try {
+                lock.close();
+            } catch (IOException e) {
+                System.err.println("Error unlocking " + directory);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void force() {
+        if (dirty) {
+            dirty = false;
+            segment.buffer.force();
+        }
+    }
+
+    private void compact() throws IOException {
+        Segment old = segment;
+        long generation = old.generation + 1;
+        Path target = directory.resolve(PREFIX + generation + SUFFIX);
+        Path temp = directory.resolve(PREFIX + generation + ".tmp");
+
+        // Live records are copied in id order and renumbered; a leftover continuation
+        // flag is cleared, as the rest of that change is not copied
+        ByteBuffer chunk = ByteBuffer.allocateDirect(RECORD_SIZE * 4096);
+        ConcurrentSkipListMap<Integer, Integer> slots = new ConcurrentSkipListMap<>();
+        int slot = 1;
+        long renumbered = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            chunk.put(header(nextId));
+            for (Map.Entry<Integer, Integer> entry : old.slots.entrySet()) {
+                if (!chunk.hasRemaining()) {
+                    writeFully(out, chunk);
+                }
+                int offset = chunk.position();
+                chunk.put(offset, old.buffer, entry.getValue() * RECORD_SIZE, RECORD_SIZE);
+                chunk.put(offset + FLAGS_OFFSET, (byte) 0);
+                chunk.putLong(offset + SEQUENCE_OFFSET, ++renumbered);
+                chunk.putInt(offset + CRC_OFFSET, checksum(chunk, offset));
+                chunk.position(offset + RECORD_SIZE);
+                slots.put(entry.getKey(), slot++);
+            }
+            writeFully(out, chunk);
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+        Segment compacted = Segment.map(target, generation);
+        compacted.slots.putAll(slots);
+        compacted.nextSlot = slot;
+        sequence = renumbered;
+        segment = compacted;
+
+        old.close();
+        try {
+            Files.deleteIfExists(old.path);
+        } catch (IOException e) {
+            // Still mapped on some platforms; open() removes it next time
+        }
+        System.out.println("Compacted the product log from " + (old.nextSlot - 1)
+                + " to " + (slot - 1) + " records");
+    }
+
+    private void copyWithQuantity(int slot, int quantity, boolean continued) {
+        Segment current = segment;
+        int offset = slot * RECORD_SIZE;
+        byte[] name = new byte[current.buffer.getShort(offset + NAME_LENGTH_OFFSET)];
+        current.buffer.get(offset + NAME_OFFSET, name);
+        append(TYPE_PUT, continued, current.buffer.getInt(offset + ID_OFFSET), name,
+                current.buffer.getDouble(offset + PRICE_OFFSET), quantity);
+    }
+
+    /**
+     * Makes room for the given number of appends, compacting or growing the
+     * mapping if needed. Callers hold the instance lock.
+     */
+    private void reserve(int records) throws SQLException {
+        if (fits(records)) {
+            return;
+        }
+        compactIfWorthwhile();
+        try {
+            while (!fits(records)) {
+                segment.grow();
+            }
+        } catch (IOException e) {
+            throw new SQLException("Product log " + segment.path + " is full", e);
+        }
+    }
+
+    private boolean fits(int records) {
+        return (long) segment.nextSlot + records <= segment.capacity / RECORD_SIZE;
+    }
+
+    // Callers hold the instance lock and have reserved room
+    private void append(byte type, boolean continued, int id, byte[] name, double price, int quantity) {
+        Segment current = segment;
+        int slot = current.nextSlot;
+        int offset = slot * RECORD_SIZE;
+        MappedByteBuffer buffer = current.buffer;
+        buffer.put(offset + TYPE_OFFSET, type);
+        buffer.put(offset + FLAGS_OFFSET, continued ? FLAG_CONTINUED : 0);
+        buffer.putShort(offset + NAME_LENGTH_OFFSET, (short) name.length);
+        buffer.putLong(offset + SEQUENCE_OFFSET, ++sequence);
+        buffer.putInt(offset + ID_OFFSET, id);
+        buffer.putInt(offset + QUANTITY_OFFSET, quantity);
+        buffer.putDouble(offset + PRICE_OFFSET, price);
+        buffer.put(offset + NAME_OFFSET, name);
+        buffer.putInt(offset + CRC_OFFSET, checksum(buffer, offset));
+        current.nextSlot++;
+        dirty = true;
+
+        // Publishing the slot makes the record visible to readers
+        if (type == TYPE_DELETE) {
+            current.slots.remove(id);
+        } else {
+            current.slots.put(id, slot);
+        }
+    }
+
+    private static byte[] encode(String name) throws SQLException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new SQLException("Product name is longer than " + MAX_NAME_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + TYPE_OFFSET, RECORD_SIZE - TYPE_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer header(int nextId) {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_SIZE);
+        header.put(TYPE_OFFSET, TYPE_HEADER);
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, FORMAT_VERSION);
+        header.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        header.putInt(NEXT_ID_OFFSET, nextId);
+        header.putInt(CRC_OFFSET, checksum(header, 0));
+        return header;
+    }
+
+    private static void writeHeader(Path file, int nextId) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(out, header(nextId).position(RECORD_SIZE));
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long generation(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * One log file, its mapping and the index of the latest record per product id.
+     */
+    private static final class Segment {
+        final Path path;
+        final long generation;
+        final FileChannel channel;
+        final ConcurrentSkipListMap<Integer, Integer> slots = new ConcurrentSkipListMap<>();
+        // Remapped larger when full; the old mapping stays valid for readers still using it
+        volatile MappedByteBuffer buffer;
+        volatile int capacity;
+        int nextSlot = 1;
+
+        private Segment(Path path, long generation, FileChannel channel, int capacity) throws IOException {
+            this.path = path;
+            this.generation = generation;
+            this.channel = channel;
+            this.capacity = capacity;
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        static Segment map(Path path, long generation) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            long capacity = INITIAL_CAPACITY;
+            while (capacity < size) {
+                capacity *= 2;
+            }
+            try {
+                return new Segment(path, generation, channel, (int) Math.min(capacity, MAX_CAPACITY));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        void grow() throws IOException {
+            if (capacity >= MAX_CAPACITY) {
+                throw new IOException("Log reached the " + MAX_CAPACITY / RECORD_SIZE + " record limit");
+            }
+            int grown = (int) Math.min((long) capacity * 2, MAX_CAPACITY);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, grown);
+            capacity = grown;
+        }
+
+        Product read(int slot) {
+            ByteBuffer source = buffer;
+            int offset = slot * RECORD_SIZE;
+            byte[] name = new byte[source.getShort(offset + NAME_LENGTH_OFFSET)];
+            source.get(offset + NAME_OFFSET, name);
+            return new Product(source.getInt(offset + ID_OFFSET), new String(name, StandardCharsets.UTF_8),
+                    source.getDouble(offset + PRICE_OFFSET), source.getInt(offset + QUANTITY_OFFSET));
+        }
+
+        int quantity(int slot) {
+            return buffer.getInt(slot * RECORD_SIZE + QUANTITY_OFFSET);
+        }
+
+        /**
+         * Live products in id order, decoded as they are iterated.
+         */
+        Iterable<Product> products() {
+            return () -> {
+                Iterator<Integer> it = slots.values().iterator();
+                return new Iterator<Product>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Product next() {
+                        return read(it.next());
+                    }
+                };
+            };
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + path);
+                e.printStackTrace();
+            }
+        }
+    }
+}
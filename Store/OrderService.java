@@ -0,0 +1,46 @@
+package Store;
+
+import Models.Order;
+import Models.OrderItem;
+import Models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records checkouts as orders. Stock is already reserved when items go into the
+ * cart, so placing an order only has to persist it.
+ */
+public class OrderService {
+    private static final GroupCommitOrderWriter writer = new GroupCommitOrderWriter();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(writer::shutdown, "order-writer-shutdown"));
+    }
+
+    private OrderService() { }
+
+    /**
+     * Queues an order for the given productId -> quantity map. The future completes
+     * with the saved order (including its id) once it is committed, or exceptionally.
+     */
+    public static CompletableFuture<Order> placeOrder(String username, Map<Integer, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Order has no items"));
+        }
+
+        List<OrderItem> items = new ArrayList<>(quantities.size());
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            Product product = ECommerceStore.getProductById(entry.getKey());
+            if (product == null) {
+                return CompletableFuture.failedFuture(
+                        new IllegalArgumentException("Product " + entry.getKey() + " no longer exists"));
+            }
+            items.add(new OrderItem(product.getId(), product.getName(), entry.getValue(), product.getPrice()));
+        }
+
+        return writer.submit(username, items);
+    }
+}
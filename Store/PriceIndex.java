@@ -0,0 +1,116 @@
+package Store;
+
+import Models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Products sorted by (price, id), kept once for the whole catalog and once for
+ * the products currently in stock.
+ *
+ * Range and cheapest/most-expensive queries seek into a skip list in logarithmic
+ * time and then read only the rows they return. Readers never lock; writers are
+ * serialised so the two maps and the key lookup move together.
+ */
+public class PriceIndex {
+    private final ConcurrentSkipListMap<PriceKey, Product> all = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<PriceKey, Product> inStock = new ConcurrentSkipListMap<>();
+    // id -> key it is currently filed under, so a price change can find the old entry
+    private final Map<Integer, PriceKey> keysById = new ConcurrentHashMap<>();
+
+    /**
+     * Files the product under its current price and stock; call again after either changes.
+     */
+    public synchronized void update(Product product) {
+        PriceKey key = new PriceKey(product.getPrice(), product.getId());
+        PriceKey previous = keysById.put(product.getId(), key);
+        if (previous != null && !previous.equals(key)) {
+            all.remove(previous);
+            inStock.remove(previous);
+        }
+        all.put(key, product);
+        if (product.getQuantity() > 0) {
+            inStock.put(key, product);
+        } else {
+            inStock.remove(key);
+        }
+    }
+
+    public synchronized void remove(int productId) {
+        PriceKey previous = keysById.remove(productId);
+        if (previous != null) {
+            all.remove(previous);
+            inStock.remove(previous);
+        }
+    }
+
+    /**
+     * Products priced between min and max inclusive, cheapest first.
+     */
+    public List<Product> range(double min, double max, boolean inStockOnly, int limit) {
+        if (min > max) {
+            return List.of();
+        }
+        NavigableMap<PriceKey, Product> range = map(inStockOnly).subMap(
+                new PriceKey(min, Integer.MIN_VALUE), true, new PriceKey(max, Integer.MAX_VALUE), true);
+        return take(range, limit);
+    }
+
+    public List<Product> cheapest(boolean inStockOnly, int limit) {
+        return take(map(inStockOnly), limit);
+    }
+
+    public List<Product> mostExpensive(boolean inStockOnly, int limit) {
+        return take(map(inStockOnly).descendingMap(), limit);
+    }
+
+    private NavigableMap<PriceKey, Product> map(boolean inStockOnly) {
+        return inStockOnly ? inStock : all;
+    }
+
+    private static List<Product> take(NavigableMap<PriceKey, Product> map, int limit) {
+        List<Product> result = new ArrayList<>(Math.min(Math.max(limit, 0), 1024));
+        for (Product product : map.values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(product);
+        }
+        return result;
+    }
+
+    private static final class PriceKey implements Comparable<PriceKey> {
+        final double price;
+        final int id;
+
+        PriceKey(double price, int id) {
+            this.price = price;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Double.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PriceKey)) {
+                return false;
+            }
+            PriceKey other = (PriceKey) o;
+            return Double.compare(price, other.price) == 0 && id == other.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(price) + id;
+        }
+    }
+}
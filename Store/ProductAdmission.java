@@ -0,0 +1,150 @@
+package Store;
+
+import Models.Product;
+import utils.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Per-product admission control in front of stock reservations, for launches
+ * where thousands of shoppers add the same product to their cart at once.
+ *
+ * A reservation passes three checks, all in memory, before it may touch the
+ * database:
+ * - sold out: the cached stock minus the units already claimed by reservations
+ *   in progress must cover it; a product whose remaining stock is fully claimed
+ *   is refused at once;
+ * - rate: a token bucket per product, ratePerSecond reservations with bursts of
+ *   up to burst;
+ * - queue: at most concurrency reservations of the product run at the same time,
+ *   the rest wait in a bounded first-come first-served queue for up to
+ *   queueTimeoutMs.
+ * Refused shoppers get SOLD_OUT or THROTTLED in microseconds instead of
+ * queueing up as row lock waits.
+ *
+ * The cached stock is only a hint: a restock by another process is seen after
+ * the next catalog sync. Products that are not cached are let through unchecked.
+ */
+class ProductAdmission {
+    static final boolean ENABLED = Boolean.getBoolean("ecommerce.admission.enabled");
+
+    private static final double RATE_PER_SECOND =
+            Double.parseDouble(System.getProperty("ecommerce.admission.ratePerSecond", "200"));
+    private static final int BURST = Integer.getInteger("ecommerce.admission.burst", 50);
+    private static final int CONCURRENCY = Integer.getInteger("ecommerce.admission.concurrency", 4);
+    private static final int QUEUE_LIMIT = Integer.getInteger("ecommerce.admission.queueLimit", 64);
+    private static final long QUEUE_TIMEOUT_MS = Long.getLong("ecommerce.admission.queueTimeoutMs", 500);
+
+    private final Map<Integer, Gate> gates = new ConcurrentHashMap<>();
+    private final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / RATE_PER_SECOND);
+    private final LongAdder soldOut = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final Metrics.Timer queueWait = Metrics.timer("admission.queueWait");
+
+    ProductAdmission() {
+        Metrics.gauge("admission.soldOut", soldOut::sum);
+        Metrics.gauge("admission.throttled", throttled::sum);
+    }
+
+    /**
+     * Runs the reservation if the product admits it, otherwise returns SOLD_OUT
+     * or THROTTLED without running it. The reservation is given a callback to run
+     * just before it changes the cached stock: from then on the cached stock
+     * accounts for the units, so they must stop counting as claimed.
+     */
+    ReservationResult admit(int productId, int quantity, Function<Runnable, ReservationResult> reservation) {
+        Product cached = ECommerceStore.getCachedProduct(productId);
+        if (cached == null) {
+            return reservation.apply(() -> { });
+        }
+        Gate gate = gates.computeIfAbsent(productId, id -> new Gate());
+
+        int claimed = gate.claimed.addAndGet(quantity);
+        // Units of this reservation still claimed; only touched by this thread
+        int[] held = { quantity };
+        Runnable unclaim = () -> {
+            gate.claimed.addAndGet(-held[0]);
+            held[0] = 0;
+        };
+        try {
+            if (claimed > cached.getQuantity()) {
+                soldOut.increment();
+                return ReservationResult.SOLD_OUT;
+            }
+            if (!gate.tryTakeToken()) {
+                throttled.increment();
+                return ReservationResult.THROTTLED;
+            }
+            if (!gate.enter()) {
+                throttled.increment();
+                return ReservationResult.THROTTLED;
+            }
+            try {
+                return reservation.apply(unclaim);
+            } finally {
+                gate.running.release();
+            }
+        } finally {
+            unclaim.run();
+        }
+    }
+
+    /**
+     * Drops the state of a deleted product.
+     */
+    void forget(int productId) {
+        gates.remove(productId);
+    }
+
+    private final class Gate {
+        // Units asked for by reservations of this product that have not finished
+        final AtomicInteger claimed = new AtomicInteger();
+        final Semaphore running = new Semaphore(CONCURRENCY, true);
+        final AtomicInteger waiting = new AtomicInteger();
+        // Token bucket kept as the time the bucket is next full again (GCRA), so
+        // taking a token is one compare-and-set
+        final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+
+        boolean tryTakeToken() {
+            long now = System.nanoTime();
+            long burstNanos = intervalNanos * BURST;
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean enter() {
+            if (waiting.incrementAndGet() > QUEUE_LIMIT) {
+                waiting.decrementAndGet();
+                return false;
+            }
+            long start = queueWait.start();
+            try {
+                // Only the timed tryAcquire keeps to the queue order; the untimed one barges
+                boolean entered = running.tryAcquire(QUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                queueWait.stop(start);
+                return entered;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queueWait.failed(start);
+                return false;
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package Store;
+
+import Models.Product;
+import utils.Csv;
+import utils.Json;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bulk product import from a CSV or JSON file, e.g. a supplier feed.
+ *
+ * The file is parsed as a stream on the calling thread and cut into chunks that
+ * worker threads validate in parallel. Valid products are inserted in JDBC
+ * batches, TRANSACTION_SIZE rows per transaction, on a writer thread while the
+ * next rows are parsed. Invalid rows go to a reject file next to the source,
+ * each with the reason. The cache is rebuilt once at the end instead of once
+ * per product.
+ *
+ * CSV files need a header row naming the name, price and quantity columns (in
+ * any order, others are ignored); JSON files hold an array of objects with
+ * those keys.
+ */
+public class ProductImporter {
+    private static final int TRANSACTION_SIZE = Integer.getInteger("ecommerce.import.transactionSize", 10_000);
+    private static final int THREADS = Integer.getInteger("ecommerce.import.threads",
+            Runtime.getRuntime().availableProcessors());
+    // Rows per validation task
+    private static final int CHUNK_SIZE = 1_000;
+    private static final long PROGRESS_INTERVAL_MS = 500;
+    // products.name is VARCHAR(100)
+    private static final int MAX_NAME_LENGTH = 100;
+
+    private final Path rejectFile;
+    private final long totalBytes;
+    private final Consumer<ImportReport> progress;
+    private final long startedAt = System.currentTimeMillis();
+    private final ExecutorService validators;
+    private final ExecutorService writer;
+
+    // Validation tasks in file order, so rejects and inserts keep that order
+    private final Deque<Future<Chunk>> validating = new ArrayDeque<>();
+    private List<Product> pending = new ArrayList<>();
+    private Future<?> inserting;
+    private BufferedWriter rejects;
+    private CountingInputStream counter;
+    private long rowsRead;
+    private long rejected;
+    private long lastProgressAt;
+    // Updated by the writer thread
+    private final AtomicLong imported = new AtomicLong();
+
+    private ProductImporter(Path rejectFile, long totalBytes, Consumer<ImportReport> progress) {
+        this.rejectFile = rejectFile;
+        this.totalBytes = totalBytes;
+        this.progress = progress;
+        AtomicInteger threads = new AtomicInteger();
+        validators = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "product-import-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "product-import-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Imports the file and returns the outcome. Progress is reported to the
+     * consumer about twice a second, from the calling thread. Rows committed
+     * before a failure stay imported.
+     */
+    public static ImportReport importFile(Path source, Consumer<ImportReport> progress)
+            throws IOException, SQLException {
+        String fileName = source.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean json = fileName.endsWith(".json");
+        if (!json && !fileName.endsWith(".csv")) {
+            throw new IOException("Expected a .csv or .json file: " + source);
+        }
+        Path rejectFile = source.resolveSibling(source.getFileName() + ".rejects.csv");
+        Files.deleteIfExists(rejectFile);
+
+        ProductImporter importer = new ProductImporter(rejectFile, Files.size(source), progress);
+        try {
+            importer.run(source, json);
+        } finally {
+            importer.close();
+            if (importer.imported.get() > 0) {
+                ECommerceStore.reloadCatalog();
+            }
+        }
+        ImportReport report = importer.report(true);
+        progress.accept(report);
+        return report;
+    }
+
+    private void run(Path source, boolean json) throws IOException, SQLException {
+        counter = new CountingInputStream(Files.newInputStream(source));
+        try (Reader reader = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8))) {
+            RowSource rows = json ? jsonRows(reader) : csvRows(reader);
+            List<RawRow> chunk = new ArrayList<>(CHUNK_SIZE);
+            RawRow row;
+            while ((row = rows.next()) != null) {
+                rowsRead++;
+                chunk.add(row);
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit(chunk);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(chunk);
+            }
+            while (!validating.isEmpty()) {
+                collect(validating.poll());
+            }
+            if (!pending.isEmpty()) {
+                insert(pending);
+            }
+            awaitInsert();
+        }
+    }
+
+    private void submit(List<RawRow> chunk) throws IOException, SQLException {
+        // Bounded look-ahead keeps memory flat however large the file is
+        if (validating.size() >= THREADS * 2) {
+            collect(validating.poll());
+        }
+        validating.add(validators.submit(() -> validate(chunk)));
+
+        long now = System.currentTimeMillis();
+        if (now - lastProgressAt >= PROGRESS_INTERVAL_MS) {
+            lastProgressAt = now;
+            progress.accept(report(false));
+        }
+    }
+
+    private void collect(Future<Chunk> task) throws IOException, SQLException {
+        Chunk chunk = await(task);
+        for (String[] reject : chunk.rejects) {
+            writeReject(reject);
+        }
+        pending.addAll(chunk.valid);
+        if (pending.size() >= TRANSACTION_SIZE) {
+            insert(pending);
+            pending = new ArrayList<>();
+        }
+    }
+
+    private void insert(List<Product> batch) throws SQLException {
+        // One transaction in flight: parsing and validation carry on meanwhile
+        awaitInsert();
+        inserting = writer.submit(() -> {
+            imported.addAndGet(Repositories.products().insertAll(batch).size());
+            return null;
+        });
+    }
+
+    private void awaitInsert() throws SQLException {
+        if (inserting != null) {
+            try {
+                await(inserting);
+            } catch (IOException e) {
+                throw new SQLException(e.getMessage(), e);
+            }
+            inserting = null;
+        }
+    }
+
+    private static Chunk validate(List<RawRow> rows) {
+        Chunk chunk = new Chunk();
+        boolean logEngine = Repositories.engine() == StorageEngine.LOG;
+        for (RawRow row : rows) {
+            String name = row.name == null ? "" : row.name.trim();
+            if (name.isEmpty()) {
+                chunk.reject(row, "name is missing");
+                continue;
+            }
+            if (name.length() > MAX_NAME_LENGTH || (logEngine
+                    && name.getBytes(StandardCharsets.UTF_8).length > LogProductRepository.MAX_NAME_BYTES)) {
+                chunk.reject(row, "name is longer than " + MAX_NAME_LENGTH + " characters");
+                continue;
+            }
+
+            double price;
+            try {
+                price = Double.parseDouble(row.price);
+            } catch (NullPointerException | NumberFormatException e) {
+                chunk.reject(row, row.price == null || row.price.isBlank() ? "price is missing" : "price is not a number");
+                continue;
+            }
+            if (!(price > 0) || Double.isInfinite(price)) {
+                chunk.reject(row, "price must be greater than 0");
+                continue;
+            }
+
+            int quantity;
+            try {
+                quantity = Integer.parseInt(row.quantity.trim());
+            } catch (NullPointerException | NumberFormatException e) {
+                chunk.reject(row, row.quantity == null || row.quantity.isBlank()
+                        ? "quantity is missing" : "quantity is not a whole number");
+                continue;
+            }
+            if (quantity < 0) {
+                chunk.reject(row, "quantity cannot be negative");
+                continue;
+            }
+
+            chunk.valid.add(new Product(0, name, price, quantity));
+        }
+        return chunk;
+    }
+
+    private RowSource csvRows(Reader reader) throws IOException {
+        Csv.Parser parser = new Csv.Parser(reader);
+        List<String> header = parser.readRecord();
+        if (header == null) {
+            return () -> null;
+        }
+        int name = -1;
+        int price = -1;
+        int quantity = -1;
+        for (int i = 0; i < header.size(); i++) {
+            switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "name" -> name = i;
+                case "price" -> price = i;
+                case "quantity" -> quantity = i;
+                default -> { }
+            }
+        }
+        if (name < 0 || price < 0 || quantity < 0) {
+            throw new IOException("The CSV header must name the name, price and quantity columns");
+        }
+        int nameColumn = name;
+        int priceColumn = price;
+        int quantityColumn = quantity;
+        return () -> {
+            List<String> fields = parser.readRecord();
+            if (fields == null) {
+                return null;
+            }
+            // Record numbers count the header, like a spreadsheet's row numbers
+            return new RawRow(parser.getRecordCount(), field(fields, nameColumn),
+                    field(fields, priceColumn), field(fields, quantityColumn));
+        };
+    }
+
+    private RowSource jsonRows(Reader reader) throws IOException {
+        Json.Parser parser = new Json.Parser(reader);
+        parser.beginArray();
+        long[] index = {0};
+        return () -> {
+            if (!parser.hasNextElement()) {
+                parser.expectEnd();
+                return null;
+            }
+            index[0]++;
+            Object value = parser.readValue();
+            if (!(value instanceof Map)) {
+                return new RawRow(index[0], null, null, null);
+            }
+            Map<?, ?> object = (Map<?, ?>) value;
+            return new RawRow(index[0], text(object.get("name")), text(object.get("price")), text(object.get("quantity")));
+        };
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    private void writeReject(String[] reject) throws IOException {
+        if (rejects == null) {
+            rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+            rejects.write(Csv.format(List.of("row", "reason", "name", "price", "quantity")));
+            rejects.newLine();
+        }
+        rejects.write(Csv.format(List.of(reject)));
+        rejects.newLine();
+        rejected++;
+    }
+
+    private ImportReport report(boolean finished) {
+        return new ImportReport(rowsRead, imported.get(), rejected, counter == null ? 0 : counter.count,
+                totalBytes, System.currentTimeMillis() - startedAt, rejected > 0 ? rejectFile : null, finished);
+    }
+
+    private void close() throws IOException {
+        validators.shutdownNow();
+        writer.shutdown();
+        try {
+            awaitInsert(); // Let a transaction already sent finish, even after a failure
+        } catch (SQLException e) {
+            // Already failed; the first error is the one reported
+        }
+        if (rejects != null) {
+            rejects.close();
+        }
+    }
+
+    private static <T> T await(Future<T> task) throws IOException, SQLException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private interface RowSource {
+        RawRow next() throws IOException;
+    }
+
+    private static final class RawRow {
+        final long number;
+        final String name;
+        final String price;
+        final String quantity;
+
+        RawRow(long number, String name, String price, String quantity) {
+            this.number = number;
+            this.name = name;
+            this.price = price;
+            this.quantity = quantity;
+        }
+    }
+
+    private static final class Chunk {
+        final List<Product> valid = new ArrayList<>();
+        // row, reason, name, price, quantity
+        final List<String[]> rejects = new ArrayList<>();
+
+        void reject(RawRow row, String reason) {
+            rejects.add(new String[] {String.valueOf(row.number), reason,
+                    nullToEmpty(row.name), nullToEmpty(row.price), nullToEmpty(row.quantity)});
+        }
+
+        private static String nullToEmpty(String value) {
+            return value == null ? "" : value;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
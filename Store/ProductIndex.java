@@ -0,0 +1,218 @@
+package Store;
+
+import Models.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing hash index from product id to Product.
+ *
+ * Keys are stored in a primitive int[] with linear probing, so lookups never box.
+ * Writers are serialised by a StampedLock; readers use optimistic stamps and only
+ * fall back to a read lock if a write raced with them.
+ */
+public class ProductIndex {
+    private static final int EMPTY = 0; // product ids are AUTO_INCREMENT and start at 1
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private final StampedLock lock = new StampedLock();
+    private Table table;
+    private int size;
+
+    public ProductIndex() {
+        this(MIN_CAPACITY);
+    }
+
+    public ProductIndex(int expectedSize) {
+        table = new Table(tableSizeFor((int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR)));
+    }
+
+    public Product get(int id) {
+        if (id == EMPTY) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        Product found = probe(table, id);
+        if (lock.validate(stamp)) {
+            return found;
+        }
+        stamp = lock.readLock();
+        try {
+            return probe(table, id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private static Product probe(Table t, int id) {
+        // The table is read once per attempt so a concurrent resize cannot mix two array pairs
+        int[] keys = t.keys;
+        Product[] values = t.values;
+        int mask = keys.length - 1;
+        for (int i = hash(id) & mask, n = 0; n <= mask; i = (i + 1) & mask, n++) {
+            int key = keys[i];
+            if (key == id) {
+                return values[i];
+            }
+            if (key == EMPTY) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public void put(Product product) {
+        int id = product.getId();
+        if (id == EMPTY) {
+            throw new IllegalArgumentException("Product id must be non-zero");
+        }
+        long stamp = lock.writeLock();
+        try {
+            if (size + 1 > table.keys.length * LOAD_FACTOR) {
+                resize(table.keys.length << 1);
+            }
+            int[] keys = table.keys;
+            int mask = keys.length - 1;
+            int i = hash(id) & mask;
+            while (keys[i] != EMPTY && keys[i] != id) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                keys[i] = id;
+                size++;
+            }
+            table.values[i] = product;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public Product remove(int id) {
+        if (id == EMPTY) {
+            return null;
+        }
+        long stamp = lock.writeLock();
+        try {
+            int[] keys = table.keys;
+            int mask = keys.length - 1;
+            int i = hash(id) & mask;
+            while (keys[i] != id) {
+                if (keys[i] == EMPTY) {
+                    return null;
+                }
+                i = (i + 1) & mask;
+            }
+            Product removed = table.values[i];
+            deleteSlot(i);
+            size--;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Backward-shift deletion keeps probe chains intact without tombstones.
+     */
+    private void deleteSlot(int slot) {
+        int[] keys = table.keys;
+        Product[] values = table.values;
+        int mask = keys.length - 1;
+        int gap = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            int key = keys[i];
+            if (key == EMPTY) {
+                break;
+            }
+            int home = hash(key) & mask;
+            // Move the entry into the gap if its home slot is not between gap and i
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns a snapshot of all products ordered by id.
+     */
+    public List<Product> values() {
+        List<Product> result;
+        long stamp = lock.readLock();
+        try {
+            result = new ArrayList<>(size);
+            for (Product p : table.values) {
+                if (p != null) {
+                    result.add(p);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        result.sort(Comparator.comparingInt(Product::getId));
+        return result;
+    }
+
+    private void resize(int newCapacity) {
+        int[] oldKeys = table.keys;
+        Product[] oldValues = table.values;
+        Table resized = new Table(newCapacity);
+        int[] newKeys = resized.keys;
+        Product[] newValues = resized.values;
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            int key = oldKeys[j];
+            if (key != EMPTY) {
+                int i = hash(key) & mask;
+                while (newKeys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                newKeys[i] = key;
+                newValues[i] = oldValues[j];
+            }
+        }
+        table = resized;
+    }
+
+    private static int hash(int id) {
+        // Sequential ids would cluster under linear probing without mixing
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Key and value arrays of one generation, swapped as a unit on resize.
+     */
+    private static final class Table {
+        final int[] keys;
+        final Product[] values;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            values = new Product[capacity];
+        }
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(Math.max(n, MIN_CAPACITY) - 1) << 1;
+        return Math.max(capacity, MIN_CAPACITY);
+    }
+}
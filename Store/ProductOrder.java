@@ -0,0 +1,38 @@
+package Store;
+
+import Models.Product;
+
+import java.util.Comparator;
+
+/**
+ * Sort orders supported by keyset pagination. Every order ends with the id so
+ * that the (sort key, id) pair is unique and can serve as a page cursor.
+ */
+public enum ProductOrder {
+    ID("id", Comparator.comparingInt(Product::getId)),
+    PRICE("price", Comparator.comparingDouble(Product::getPrice).thenComparingInt(Product::getId)),
+    NAME("name", Comparator.comparing(Product::getName).thenComparingInt(Product::getId));
+
+    private final String column;
+    private final Comparator<Product> comparator;
+
+    ProductOrder(String column, Comparator<Product> comparator) {
+        this.column = column;
+        this.comparator = comparator;
+    }
+
+    public Comparator<Product> comparator() {
+        return comparator;
+    }
+
+    String orderBy() {
+        return this == ID ? "id" : column + ", id";
+    }
+
+    /**
+     * WHERE clause selecting rows after the cursor; parameters are bound by bindAfter.
+     */
+    String afterClause() {
+        return this == ID ? "id > ?" : "(" + column + " > ? OR (" + column + " = ? AND id > ?))";
+    }
+}
@@ -0,0 +1,361 @@
+package Store;
+
+import Models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * In-memory full-text index over product names.
+ *
+ * Names are split into lower-case word tokens. A sorted token dictionary answers
+ * prefix queries and a trigram index finds tokens within a small edit distance,
+ * so "lapt" and "labtop" both find "Laptop". Every query term must match; results
+ * are ranked by how well the terms match (exact, then prefix, then fuzzy).
+ */
+public class ProductSearchIndex {
+    private static final int SCORE_EXACT = 3;
+    private static final int SCORE_PREFIX = 2;
+    private static final int SCORE_FUZZY = 1;
+    // Terms shorter than this are matched by prefix only
+    private static final int MIN_FUZZY_LENGTH = 4;
+    // Caps the work a very common prefix such as "a" can cause
+    private static final int MAX_EXPANDED_TOKENS = 256;
+    private static final int MAX_CANDIDATES = 20_000;
+    // Candidates examined before an equal-score tail may be cut off
+    private static final int TIE_BREAK_BUDGET = 500;
+
+    // Higher score first, then shorter name, then lower id
+    private static final Comparator<Match> RANKING = (a, b) -> {
+        if (a.score != b.score) {
+            return Integer.compare(b.score, a.score);
+        }
+        int byLength = Integer.compare(a.product.getName().length(), b.product.getName().length());
+        return byLength != 0 ? byLength : Integer.compare(a.product.getId(), b.product.getId());
+    };
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // token -> ids of products whose name contains it
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    // trigram -> tokens containing it, for typo tolerance
+    private final Map<String, Set<String>> trigrams = new HashMap<>();
+    // id -> tokens currently indexed for it, so renames and removals can be undone
+    private final Map<Integer, String[]> tokensById = new HashMap<>();
+
+    public void index(Product product) {
+        String[] tokens = tokenize(product.getName());
+        lock.writeLock().lock();
+        try {
+            String[] previous = tokensById.get(product.getId());
+            if (previous != null && Arrays.equals(previous, tokens)) {
+                return;
+            }
+            if (previous != null) {
+                unindex(product.getId(), previous);
+            }
+            for (String token : tokens) {
+                PostingList list = postings.get(token);
+                if (list == null) {
+                    list = new PostingList();
+                    postings.put(token, list);
+                    for (String gram : trigramsOf(token)) {
+                        trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(token);
+                    }
+                }
+                list.add(product.getId());
+            }
+            tokensById.put(product.getId(), tokens);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            String[] previous = tokensById.remove(productId);
+            if (previous != null) {
+                unindex(productId, previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(int productId, String[] tokens) {
+        for (String token : tokens) {
+            PostingList list = postings.get(token);
+            if (list != null && list.remove(productId) && list.isEmpty()) {
+                postings.remove(token);
+                for (String gram : trigramsOf(token)) {
+                    Set<String> owners = trigrams.get(gram);
+                    if (owners != null) {
+                        owners.remove(token);
+                        if (owners.isEmpty()) {
+                            trigrams.remove(gram);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns up to limit products matching every term of the query, best first.
+     * resolver maps product ids to the cached products.
+     */
+    public List<Product> search(String query, int limit, IntFunction<Product> resolver) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        // Worst-ranked kept match at the head, so it is the one replaced
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        lock.readLock().lock();
+        try {
+            // Expand each term to the dictionary tokens it matches
+            List<Map<String, Integer>> expansions = new ArrayList<>(terms.length);
+            int seed = 0;
+            long seedSize = Long.MAX_VALUE;
+            for (int i = 0; i < terms.length; i++) {
+                Map<String, Integer> expansion = expand(terms[i]);
+                if (expansion.isEmpty()) {
+                    return List.of(); // A term nobody matches means no results
+                }
+                expansions.add(expansion);
+                long size = 0;
+                for (String token : expansion.keySet()) {
+                    size += postings.get(token).size();
+                }
+                if (size < seedSize) {
+                    seedSize = size;
+                    seed = i;
+                }
+            }
+
+            // Candidates come from the most selective term, best-scoring tokens first;
+            // the other terms are checked against each candidate's own tokens
+            List<Map.Entry<String, Integer>> seedTokens = new ArrayList<>(expansions.get(seed).entrySet());
+            seedTokens.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+            int otherTermsMax = SCORE_EXACT * (terms.length - 1);
+            // A product is only reachable twice if the term expanded to several of its tokens
+            Set<Integer> seen = seedTokens.size() > 1 ? new HashSet<>() : null;
+            int examined = 0;
+
+            for (Map.Entry<String, Integer> entry : seedTokens) {
+                int tierScore = entry.getValue();
+                PostingList list = postings.get(entry.getKey());
+                for (int p = 0; p < list.size(); p++) {
+                    // Nothing left can outrank what we have; the tie-break budget
+                    // still lets shorter names win among equal scores
+                    if (best.size() == limit && best.peek().score >= tierScore + otherTermsMax
+                            && examined >= TIE_BREAK_BUDGET) {
+                        return ranked(best);
+                    }
+                    if (examined >= MAX_CANDIDATES) {
+                        return ranked(best);
+                    }
+                    int id = list.get(p);
+                    if (seen != null && !seen.add(id)) {
+                        continue;
+                    }
+                    examined++;
+                    int score = tierScore;
+                    String[] tokens = terms.length > 1 ? tokensById.get(id) : null;
+                    for (int i = 0; i < terms.length && score > 0; i++) {
+                        if (i != seed) {
+                            int termScore = bestScore(tokens, expansions.get(i));
+                            score = termScore == 0 ? 0 : score + termScore;
+                        }
+                    }
+                    if (score > 0) {
+                        Product product = resolver.apply(id);
+                        if (product != null) {
+                            best.add(new Match(product, score));
+                            if (best.size() > limit) {
+                                best.poll();
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ranked(best);
+    }
+
+    private static List<Product> ranked(PriorityQueue<Match> best) {
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(RANKING);
+        List<Product> results = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            results.add(match.product);
+        }
+        return results;
+    }
+
+    /**
+     * Maps every dictionary token a query term matches to its match score.
+     */
+    private Map<String, Integer> expand(String term) {
+        Map<String, Integer> expansion = new HashMap<>();
+        if (postings.containsKey(term)) {
+            expansion.put(term, SCORE_EXACT);
+        }
+        for (String token : postings.subMap(term, false, term + Character.MAX_VALUE, false).keySet()) {
+            if (expansion.size() >= MAX_EXPANDED_TOKENS) {
+                break;
+            }
+            expansion.put(token, SCORE_PREFIX);
+        }
+        if (term.length() >= MIN_FUZZY_LENGTH) {
+            int maxEdits = term.length() >= 8 ? 2 : 1;
+            for (String token : fuzzyCandidates(term)) {
+                if (!expansion.containsKey(token) && withinEditDistance(term, token, maxEdits)) {
+                    expansion.put(token, SCORE_FUZZY);
+                }
+            }
+        }
+        return expansion;
+    }
+
+    private Set<String> fuzzyCandidates(String term) {
+        // Tokens sharing at least one trigram with the term
+        Set<String> candidates = new HashSet<>();
+        for (String gram : trigramsOf(term)) {
+            Set<String> owners = trigrams.get(gram);
+            if (owners != null) {
+                for (String token : owners) {
+                    if (Math.abs(token.length() - term.length()) <= 2) {
+                        candidates.add(token);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static int bestScore(String[] tokens, Map<String, Integer> expansion) {
+        int best = 0;
+        if (tokens != null) {
+            for (String token : tokens) {
+                Integer score = expansion.get(token);
+                if (score != null && score > best) {
+                    best = score;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Bounded Levenshtein distance check; stops as soon as the bound is exceeded.
+     */
+    static boolean withinEditDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return false;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(t -> !t.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    private static List<String> trigramsOf(String token) {
+        String padded = "$" + token + "$";
+        List<String> grams = new ArrayList<>(padded.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static class Match {
+        final Product product;
+        final int score;
+
+        Match(Product product, int score) {
+            this.product = product;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Sorted, growable set of product ids without boxing.
+     */
+    private static class PostingList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        int get(int index) { return ids[index]; }
+
+        int size() { return size; }
+
+        boolean isEmpty() { return size == 0; }
+    }
+}
@@ -0,0 +1,140 @@
+package Store;
+
+import Interfaces.ReadOnly;
+import utils.Metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends repository reads to the read replicas and everything else to the primary.
+ *
+ * Replicas apply the primary's changes with a delay, so a session that has just
+ * written could read its own change back as missing. After a session writes, its
+ * reads therefore go to the primary for ecommerce.db.readYourWritesMs; a replica
+ * lagging further behind than that can still miss the write. A session is
+ * whatever the caller binds to the thread, e.g. the HTTP session token; calls on
+ * unbound threads (the GUI, the console) share one session for the whole
+ * process. Background threads that write on nobody's behalf bind a session of
+ * their own, so their writes do not pin everyone else's reads to the primary.
+ */
+public final class ReadRouting {
+    private static final long READ_YOUR_WRITES_NANOS =
+            Long.getLong("ecommerce.db.readYourWritesMs", 2_000) * 1_000_000L;
+    // Expired entries are swept once there are more sessions than this
+    private static final int SWEEP_THRESHOLD = 1024;
+
+    private static final Object PROCESS = new Object();
+    private static final ThreadLocal<Object> SESSION = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+    private static final Map<Object, Long> LAST_WRITE = new ConcurrentHashMap<>();
+    private static final LongAdder REPLICA_READS = new LongAdder();
+    private static final LongAdder PINNED_READS = new LongAdder();
+
+    static {
+        Metrics.gauge("db.reads.replica", REPLICA_READS::sum);
+        Metrics.gauge("db.reads.pinnedToPrimary", PINNED_READS::sum);
+    }
+
+    private ReadRouting() { }
+
+    /**
+     * Attributes the calls of this thread to the given session until unbind().
+     */
+    public static void bind(Object session) {
+        SESSION.set(session);
+    }
+
+    public static void unbind() {
+        SESSION.remove();
+    }
+
+    /**
+     * Gives the calls of this thread a session of their own, for background writers.
+     */
+    public static void bindOwnSession() {
+        SESSION.set(new Object());
+    }
+
+    /**
+     * Sends every read of this thread to the primary until called with false,
+     * for work whose result is shared and must never go back in time, like the
+     * catalog cache.
+     */
+    static void readFromPrimary(boolean primaryOnly) {
+        if (primaryOnly) {
+            PRIMARY_ONLY.set(Boolean.TRUE);
+        } else {
+            PRIMARY_ONLY.remove();
+        }
+    }
+
+    /**
+     * The session calls of this thread are attributed to, for work handed to
+     * another thread that should count as the caller's.
+     */
+    static Object currentSession() {
+        Object session = SESSION.get();
+        return session != null ? session : PROCESS;
+    }
+
+    /**
+     * Returns a repository that calls replica for @ReadOnly methods, unless the
+     * current session wrote recently, and primary for all other methods.
+     */
+    public static <T> T route(Class<T> type, T primary, T replica) {
+        Set<Method> reads = new HashSet<>();
+        for (Method method : type.getMethods()) {
+            if (method.isAnnotationPresent(ReadOnly.class)) {
+                reads.add(method);
+            }
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    Object session = currentSession();
+                    if (!reads.contains(method)) {
+                        // Pinned from the start, so reads running alongside the write see it
+                        // too, and again at the end, so the window follows the commit
+                        wrote(session);
+                        try {
+                            return invoke(primary, method, args);
+                        } finally {
+                            wrote(session);
+                        }
+                    }
+                    if (PRIMARY_ONLY.get() != null || wroteRecently(session)) {
+                        PINNED_READS.increment();
+                        return invoke(primary, method, args);
+                    }
+                    REPLICA_READS.increment();
+                    return invoke(replica, method, args);
+                }));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    static void wrote(Object session) {
+        long now = System.nanoTime();
+        LAST_WRITE.put(session, now);
+        if (LAST_WRITE.size() > SWEEP_THRESHOLD) {
+            LAST_WRITE.values().removeIf(at -> now - at > READ_YOUR_WRITES_NANOS);
+        }
+    }
+
+    private static boolean wroteRecently(Object session) {
+        Long at = LAST_WRITE.get(session);
+        return at != null && System.nanoTime() - at < READ_YOUR_WRITES_NANOS;
+    }
+}
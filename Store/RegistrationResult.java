@@ -0,0 +1,10 @@
+package Store;
+
+/**
+ * Outcome of a customer registration attempt.
+ */
+public enum RegistrationResult {
+    REGISTERED,
+    USERNAME_TAKEN,
+    FAILED
+}
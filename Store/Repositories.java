@@ -0,0 +1,182 @@
+package Store;
+
+import Interfaces.OrderRepository;
+import Interfaces.ProductRepository;
+import Interfaces.UserRepository;
+import utils.DatabaseConnection;
+import utils.EmbeddedDatabase;
+import utils.Metrics;
+import utils.PasswordHasher;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * The repositories of the configured storage engine, created on first use.
+ */
+public final class Repositories {
+    private static final StorageEngine ENGINE = StorageEngine.configured();
+
+    // Set once, after every repository in it is ready; read without locking
+    private static volatile Opened opened;
+
+    // Demo catalog for engines that start empty, same as init.sql
+    private static final Object[][] SAMPLE_PRODUCTS = {
+        {"Laptop", 55000.0, 5},
+        {"Smartphone", 25000.0, 10},
+        {"Headphones", 2000.0, 15},
+        {"Keyboard", 1500.0, 8},
+        {"Mouse", 900.0, 15},
+        {"IPhone", 60000.0, 10}
+    };
+
+    private Repositories() { }
+
+    public static StorageEngine engine() {
+        return ENGINE;
+    }
+
+    public static ProductRepository products() {
+        return opened().products;
+    }
+
+    public static UserRepository users() {
+        return opened().users;
+    }
+
+    public static OrderRepository orders() {
+        return opened().orders;
+    }
+
+    /**
+     * The engine's JDBC data source, or null for the in-memory engine.
+     */
+    public static DataSource dataSource() {
+        return opened().dataSource;
+    }
+
+    /**
+     * Fails if the configured engine cannot be reached, so startup can report it.
+     */
+    public static void checkAvailable() throws SQLException {
+        DataSource source;
+        try {
+            source = dataSource();
+        } catch (IllegalStateException e) {
+            throw new SQLException(e.getMessage(), e.getCause());
+        }
+        if (source != null) {
+            // Borrowing a connection and giving it back is the check
+            source.getConnection().close();
+        }
+    }
+
+    private static Opened opened() {
+        Opened current = opened;
+        return current != null ? current : open();
+    }
+
+    // Retried on the next call if the engine cannot be opened
+    private static synchronized Opened open() {
+        if (opened == null) {
+            opened = new Opened();
+        }
+        return opened;
+    }
+
+    /**
+     * The repositories of the engine, opened and seeded by the constructor.
+     */
+    private static final class Opened {
+        ProductRepository products;
+        UserRepository users;
+        OrderRepository orders;
+        DataSource dataSource;
+
+        Opened() {
+            boolean seedUsers = false;
+            boolean seedProducts = false;
+            switch (ENGINE) {
+                case MYSQL -> {
+                    DatabaseConnection database = DatabaseConnection.getInstance();
+                    dataSource = database.getDataSource();
+                    useSql(dataSource, true);
+                    if (database.hasReplicas()) {
+                        useReplicas(database.getReadDataSource());
+                    }
+                }
+                case EMBEDDED -> {
+                    try {
+                        EmbeddedDatabase database = EmbeddedDatabase.getInstance();
+                        dataSource = database.getDataSource();
+                        seedUsers = database.isNew();
+                        seedProducts = seedUsers;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Could not open the embedded database", e);
+                    }
+                    useSql(dataSource, false);
+                }
+                case LOG -> {
+                    LogProductRepository log;
+                    try {
+                        EmbeddedDatabase database = EmbeddedDatabase.getInstance();
+                        dataSource = database.getDataSource();
+                        seedUsers = database.isNew();
+                        log = LogProductRepository.open(Path.of(System.getProperty("ecommerce.log.dir", "data")));
+                    } catch (SQLException | IOException e) {
+                        throw new IllegalStateException("Could not open the local product log", e);
+                    }
+                    Runtime.getRuntime().addShutdownHook(new Thread(log::close, "product-log-shutdown"));
+                    useSql(dataSource, false);
+                    products = log;
+                    seedProducts = log.isNew();
+                }
+                default -> {
+                    products = new InMemoryProductRepository();
+                    users = new InMemoryUserRepository();
+                    orders = new InMemoryOrderRepository();
+                    seedUsers = true;
+                    seedProducts = true;
+                }
+            }
+            addInitialData(seedUsers, seedProducts);
+        }
+
+        // Each repository call is one JDBC round trip or short transaction, timed as db.<table>.<method>
+        private void useSql(DataSource source, boolean changeLog) {
+            products = Metrics.timed(ProductRepository.class, new SqlProductRepository(source, changeLog), "db.products");
+            users = Metrics.timed(UserRepository.class, new SqlUserRepository(source), "db.users");
+            orders = Metrics.timed(OrderRepository.class, new SqlOrderRepository(source), "db.orders");
+        }
+
+        // Read-only calls go to the replicas, see ReadRouting
+        private void useReplicas(DataSource replicas) {
+            products = ReadRouting.route(ProductRepository.class, products, Metrics.timed(ProductRepository.class,
+                    new SqlProductRepository(replicas, true), "db.replica.products"));
+            users = ReadRouting.route(UserRepository.class, users,
+                    Metrics.timed(UserRepository.class, new SqlUserRepository(replicas), "db.replica.users"));
+            orders = ReadRouting.route(OrderRepository.class, orders,
+                    Metrics.timed(OrderRepository.class, new SqlOrderRepository(replicas), "db.replica.orders"));
+        }
+
+        private void addInitialData(boolean seedUsers, boolean seedProducts) {
+            try {
+                // Default admin as in init.sql; the demo catalog can be skipped, e.g. for benchmarks
+                if (seedUsers) {
+                    users.insert("admin", PasswordHasher.hash("admin123"), "admin");
+                }
+                if (!seedProducts || Boolean.getBoolean("ecommerce.store.noSampleData")) {
+                    return;
+                }
+                for (Object[] sample : SAMPLE_PRODUCTS) {
+                    products.insert((String) sample[0], (Double) sample[1], (Integer) sample[2]);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error adding initial data");
+                e.printStackTrace();
+            }
+        }
+    }
+}
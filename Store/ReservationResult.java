@@ -0,0 +1,18 @@
+package Store;
+
+/**
+ * Outcome of a stock reservation attempt.
+ */
+public enum ReservationResult {
+    RESERVED,
+    INSUFFICIENT_STOCK,
+    // Refused by admission control without asking the database
+    SOLD_OUT,
+    THROTTLED,
+    UNKNOWN_PRODUCT,
+    ERROR;
+
+    public boolean isReserved() {
+        return this == RESERVED;
+    }
+}
@@ -0,0 +1,122 @@
+package Store;
+
+import Interfaces.OrderRepository;
+import Models.Order;
+import Models.OrderItem;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Order storage in the orders and order_items tables, one transaction and two
+ * JDBC batches per call.
+ */
+class SqlOrderRepository implements OrderRepository {
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+
+    SqlOrderRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public List<Integer> insertAll(List<Order> orders) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Integer> ids = new ArrayList<>(orders.size());
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                         "INSERT INTO orders (username, total) VALUES (?, ?)",
+                         Statement.RETURN_GENERATED_KEYS)) {
+                    for (Order order : orders) {
+                        stmt.setString(1, order.getUsername());
+                        stmt.setDouble(2, order.getTotal());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        while (keys.next()) {
+                            ids.add(keys.getInt(1));
+                        }
+                    }
+                }
+                if (ids.size() != orders.size()) {
+                    throw new SQLException("Expected " + orders.size() + " order ids, got " + ids.size());
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                         "INSERT INTO order_items (order_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)")) {
+                    for (int i = 0; i < orders.size(); i++) {
+                        for (OrderItem item : orders.get(i).getItems()) {
+                            stmt.setInt(1, ids.get(i));
+                            stmt.setInt(2, item.getProductId());
+                            stmt.setInt(3, item.getQuantity());
+                            stmt.setDouble(4, item.getUnitPrice());
+                            stmt.addBatch();
+                        }
+                    }
+                    stmt.executeBatch();
+                }
+
+                conn.commit();
+                return ids;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public long stream(Consumer<Order> consumer) throws SQLException {
+        long count = 0;
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT o.id, o.username, i.product_id, i.quantity, i.unit_price "
+                 + "FROM orders o LEFT JOIN order_items i ON i.order_id = o.id "
+                 + "ORDER BY o.id, i.product_id",
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                // One row per item; rows of the same order are adjacent
+                int orderId = 0;
+                String username = null;
+                List<OrderItem> items = new ArrayList<>();
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    if (id != orderId) {
+                        if (username != null) {
+                            consumer.accept(new Order(orderId, username, items));
+                            count++;
+                            items = new ArrayList<>();
+                        }
+                        orderId = id;
+                        username = rs.getString("username");
+                    }
+                    int productId = rs.getInt("product_id");
+                    if (!rs.wasNull()) {
+                        items.add(new OrderItem(productId, null, rs.getInt("quantity"), rs.getDouble("unit_price")));
+                    }
+                }
+                if (username != null) {
+                    consumer.accept(new Order(orderId, username, items));
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+}
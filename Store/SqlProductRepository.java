@@ -0,0 +1,345 @@
+package Store;
+
+import Interfaces.ProductRepository;
+import Models.Product;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Product storage in a SQL database with the schema from init.sql: MySQL, or the
+ * embedded database.
+ */
+class SqlProductRepository implements ProductRepository {
+    // Rows fetched per round trip when streaming the catalog
+    private static final int STREAM_FETCH_SIZE = 1000;
+    // Rows per executeBatch() in insertAll; MySQL rewrites each into multi-row INSERTs
+    private static final int INSERT_BATCH_SIZE = 1000;
+    // change_id is taken at insert but becomes visible at commit, so a lower id can
+    // show up after a higher one was read; changes this recent are always read again
+    private static final int CHANGE_LOOKBACK_SECONDS = Integer.getInteger("ecommerce.catalog.changeLookbackSeconds", 10);
+
+    private final DataSource dataSource;
+    // Whether other processes can write, so the product_changes log must be read
+    private final boolean changeLog;
+
+    SqlProductRepository(DataSource dataSource, boolean changeLog) {
+        this.dataSource = dataSource;
+        this.changeLog = changeLog;
+    }
+
+    @Override
+    public int insert(String name, double price, int quantity) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO products (name, price, quantity) VALUES (?, ?, ?)",
+                 Statement.RETURN_GENERATED_KEYS)) {
+
+            stmt.setString(1, name);
+            stmt.setDouble(2, price);
+            stmt.setInt(3, quantity);
+
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException("Creating product failed, no rows affected.");
+            }
+
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    return generatedKeys.getInt(1);
+                }
+                throw new SQLException("Creating product failed, no ID obtained.");
+            }
+        }
+    }
+
+    @Override
+    public List<Integer> insertAll(List<Product> products) throws SQLException {
+        List<Integer> ids = new ArrayList<>(products.size());
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO products (name, price, quantity) VALUES (?, ?, ?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+
+                for (int i = 0; i < products.size(); i++) {
+                    Product product = products.get(i);
+                    stmt.setString(1, product.getName());
+                    stmt.setDouble(2, product.getPrice());
+                    stmt.setInt(3, product.getQuantity());
+                    stmt.addBatch();
+                    if ((i + 1) % INSERT_BATCH_SIZE == 0 || i == products.size() - 1) {
+                        stmt.executeBatch();
+                        try (ResultSet keys = stmt.getGeneratedKeys()) {
+                            while (keys.next()) {
+                                ids.add(keys.getInt(1));
+                            }
+                        }
+                    }
+                }
+                if (ids.size() != products.size()) {
+                    throw new SQLException("Expected " + products.size() + " product ids, got " + ids.size());
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        return ids;
+    }
+
+    @Override
+    public boolean update(int id, String name, double price, int quantity) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "UPDATE products SET name = ?, price = ?, quantity = ? WHERE id = ?")) {
+
+            stmt.setString(1, name);
+            stmt.setDouble(2, price);
+            stmt.setInt(3, quantity);
+            stmt.setInt(4, id);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public boolean delete(int id) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM products WHERE id = ?")) {
+
+            stmt.setInt(1, id);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public Product findById(int id) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM products WHERE id = ?")) {
+
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? readProduct(rs) : null;
+            }
+        }
+    }
+
+    @Override
+    public int count() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM products")) {
+
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    @Override
+    public List<Product> findPage(int offset, int limit) throws SQLException {
+        List<Product> page = new ArrayList<>(limit);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT * FROM products ORDER BY id LIMIT ? OFFSET ?")) {
+
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(readProduct(rs));
+                }
+            }
+        }
+
+        return page;
+    }
+
+    @Override
+    public List<Product> findAfter(ProductOrder order, Product after, int limit) throws SQLException {
+        String sql = "SELECT * FROM products"
+                + (after == null ? "" : " WHERE " + order.afterClause())
+                + " ORDER BY " + order.orderBy() + " LIMIT ?";
+        List<Product> page = new ArrayList<>(limit);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int index = 1;
+            if (after != null) {
+                index = bindAfter(stmt, order, after);
+            }
+            stmt.setInt(index, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(readProduct(rs));
+                }
+            }
+        }
+
+        return page;
+    }
+
+    @Override
+    public long stream(ProductOrder order, Consumer<Product> consumer) throws SQLException {
+        long count = 0;
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT * FROM products ORDER BY " + order.orderBy(),
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(readProduct(rs));
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    @Override
+    public long currentVersion() throws SQLException {
+        if (!changeLog) {
+            return 0; // Nobody else writes, so the caller's cache never falls behind
+        }
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(change_id), 0) FROM product_changes")) {
+
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            // Older schema without the change log; keep doing full reloads
+            System.err.println("product_changes table not available, falling back to full reloads");
+            return -1;
+        }
+    }
+
+    @Override
+    public long changesSince(long version, BiConsumer<Integer, Product> changed) throws SQLException {
+        if (!changeLog) {
+            return version;
+        }
+        // Latest change per product; a missing products row means it was deleted.
+        // Reporting a product again is harmless, so the recent window is read every time
+        String sql = "SELECT c.change_id, c.product_id, p.name, p.price, p.quantity "
+                + "FROM (SELECT product_id, MAX(change_id) AS change_id FROM product_changes "
+                + "WHERE change_id > ? OR changed_at > NOW(3) - INTERVAL ? SECOND GROUP BY product_id) c "
+                + "LEFT JOIN products p ON p.id = c.product_id";
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, version);
+            stmt.setInt(2, CHANGE_LOOKBACK_SECONDS);
+            long maxChangeId = version;
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    maxChangeId = Math.max(maxChangeId, rs.getLong("change_id"));
+                    int id = rs.getInt("product_id");
+                    String name = rs.getString("name");
+                    changed.accept(id, name == null ? null
+                            : new Product(id, name, rs.getDouble("price"), rs.getInt("quantity")));
+                }
+            }
+            return maxChangeId;
+        }
+    }
+
+    @Override
+    public boolean tryReserve(int id, int quantity) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "UPDATE products SET quantity = quantity - ? WHERE id = ? AND quantity >= ?")) {
+
+            stmt.setInt(1, quantity);
+            stmt.setInt(2, id);
+            stmt.setInt(3, quantity);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public int findQuantity(int id) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT quantity FROM products WHERE id = ?")) {
+
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt("quantity") : -1;
+            }
+        }
+    }
+
+    @Override
+    public boolean adjustStock(Map<Integer, Integer> deltas) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE products SET quantity = quantity + ? WHERE id = ? AND quantity + ? >= 0")) {
+
+                for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+                    stmt.setInt(1, entry.getValue());
+                    stmt.setInt(2, entry.getKey());
+                    stmt.setInt(3, entry.getValue());
+                    stmt.addBatch();
+                }
+
+                // Results come back in the order the entries were batched
+                int[] counts = stmt.executeBatch();
+                int i = 0;
+                for (int delta : deltas.values()) {
+                    // No row for a positive delta means the product was deleted; nothing to return to
+                    if (counts[i++] == 0 && delta < 0) {
+                        conn.rollback();
+                        return false;
+                    }
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static int bindAfter(PreparedStatement stmt, ProductOrder order, Product after) throws SQLException {
+        switch (order) {
+            case PRICE -> {
+                stmt.setDouble(1, after.getPrice());
+                stmt.setDouble(2, after.getPrice());
+                stmt.setInt(3, after.getId());
+                return 4;
+            }
+            case NAME -> {
+                stmt.setString(1, after.getName());
+                stmt.setString(2, after.getName());
+                stmt.setInt(3, after.getId());
+                return 4;
+            }
+            default -> {
+                stmt.setInt(1, after.getId());
+                return 2;
+            }
+        }
+    }
+
+    private static Product readProduct(ResultSet rs) throws SQLException {
+        return new Product(rs.getInt("id"), rs.getString("name"),
+                rs.getDouble("price"), rs.getInt("quantity"));
+    }
+}
@@ -0,0 +1,81 @@
+package Store;
+
+import Interfaces.UserRepository;
+import Models.Admin;
+import Models.Customer;
+import Models.User;
+
+import javax.sql.DataSource;
+import java.sql.*;
+
+/**
+ * User storage in the users table of a SQL database.
+ */
+class SqlUserRepository implements UserRepository {
+    private final DataSource dataSource;
+
+    SqlUserRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public User findByUsername(String username) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT password, user_type FROM users WHERE username = ?")) {
+
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? toUser(username, rs.getString("password"), rs.getString("user_type")) : null;
+            }
+        }
+    }
+
+    @Override
+    public boolean insert(String username, String passwordHash, String type) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO users (username, password, user_type) VALUES (?, ?, ?)")) {
+
+            stmt.setString(1, username);
+            stmt.setString(2, passwordHash);
+            stmt.setString(3, type);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false; // UNIQUE(username): someone registered it first
+        }
+    }
+
+    @Override
+    public boolean updatePassword(String username, String passwordHash) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("UPDATE users SET password = ? WHERE username = ?")) {
+
+            stmt.setString(1, passwordHash);
+            stmt.setString(2, username);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public int countByType(String type) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM users WHERE user_type = ?")) {
+
+            stmt.setString(1, type);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    static User toUser(String username, String password, String type) {
+        if (type.equals("admin")) {
+            return new Admin(username, password);
+        } else if (type.equals("customer")) {
+            return new Customer(username, password);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,101 @@
+package Store;
+
+import Models.Product;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifies open views of product changes as the store's cache sees them.
+ *
+ * Every path that changes the cached catalog publishes here: reservations and
+ * releases, admin edits, and the changes of other processes that a catalog sync
+ * picks up from the change log. While anyone listens, a poller runs that sync
+ * every ecommerce.stock.pollIntervalMs, so edits made elsewhere arrive without
+ * a refresh; on a schema without the change log it does nothing.
+ *
+ * Listeners are called on the thread that made the change, often while a stock
+ * lock is held, so they must only record what changed and return.
+ */
+public class StockChangeBus {
+    private static final long POLL_INTERVAL_MS = Long.getLong("ecommerce.stock.pollIntervalMs", 1_000);
+
+    private static final CopyOnWriteArrayList<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService poller;
+    private static ScheduledFuture<?> polling;
+
+    /**
+     * Receives product changes.
+     */
+    public interface Listener {
+        /**
+         * A cached product's stock, price or name changed; product is a copy of it
+         * as it is now, the listener's to keep.
+         */
+        void productChanged(Product product);
+
+        /**
+         * Products were added or removed, so positions in a listing may have moved.
+         */
+        void catalogChanged();
+    }
+
+    private StockChangeBus() { }
+
+    public static synchronized void subscribe(Listener listener) {
+        LISTENERS.addIfAbsent(listener);
+        if (polling == null && POLL_INTERVAL_MS > 0) {
+            if (poller == null) {
+                poller = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "stock-change-poller");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            polling = poller.scheduleWithFixedDelay(StockChangeBus::poll, POLL_INTERVAL_MS, POLL_INTERVAL_MS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static synchronized void unsubscribe(Listener listener) {
+        LISTENERS.remove(listener);
+        if (LISTENERS.isEmpty() && polling != null) {
+            polling.cancel(false);
+            polling = null;
+        }
+    }
+
+    static void productChanged(Product product) {
+        if (LISTENERS.isEmpty()) {
+            return;
+        }
+        Product copy = new Product(product.getId(), product.getName(), product.getPrice(), product.getQuantity());
+        for (Listener listener : LISTENERS) {
+            listener.productChanged(copy);
+        }
+    }
+
+    static void catalogChanged() {
+        for (Listener listener : LISTENERS) {
+            listener.catalogChanged();
+        }
+    }
+
+    private static void poll() {
+        if (!ECommerceStore.tracksChanges()) {
+            // Older schema without the change log: each sync would be a full reload,
+            // so views catch up when they are refreshed instead
+            return;
+        }
+        try {
+            // Applying the change log publishes whatever it changes
+            ECommerceStore.syncCatalog();
+        } catch (RuntimeException e) {
+            System.err.println("Error polling for product changes");
+            e.printStackTrace();
+        }
+    }
+}
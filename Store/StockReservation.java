@@ -0,0 +1,207 @@
+package Store;
+
+import Interfaces.ProductRepository;
+import Models.Product;
+import utils.Metrics;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reserves and releases product stock for shopping carts.
+ *
+ * The repository decrement is conditional (quantity never goes below zero), so
+ * concurrent shoppers cannot oversell. The cached Product is then adjusted under
+ * a per-product striped lock instead of being overwritten with a stale value.
+ *
+ * With -Decommerce.inventory.writeBehind=true reservations and releases are
+ * served from stock leased into memory instead (see WriteBehindInventory), and
+ * with -Decommerce.admission.enabled=true hot products are throttled before
+ * either (see ProductAdmission).
+ */
+public class StockReservation {
+    private static final int STRIPES = 64; // power of two
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+    private static final Metrics.Timer RESERVE = Metrics.timer("store.reserveStock");
+    private static final WriteBehindInventory INVENTORY = openInventory();
+    private static final ProductAdmission ADMISSION = ProductAdmission.ENABLED ? new ProductAdmission() : null;
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
+    private static WriteBehindInventory openInventory() {
+        if (!WriteBehindInventory.ENABLED) {
+            return null;
+        }
+        try {
+            WriteBehindInventory inventory = new WriteBehindInventory();
+            Runtime.getRuntime().addShutdownHook(new Thread(inventory::close, "inventory-shutdown"));
+            return inventory;
+        } catch (IOException e) {
+            System.err.println("Could not open the inventory journal, reserving stock in the database");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private StockReservation() { }
+
+    public static ReservationResult reserve(int productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity to reserve must be positive");
+        }
+        if (ADMISSION != null) {
+            return ADMISSION.admit(productId, quantity, unclaim -> reserveNow(productId, quantity, unclaim));
+        }
+        return reserveNow(productId, quantity, () -> { });
+    }
+
+    // beforeCacheUpdate runs right before the cached stock is changed, see ProductAdmission
+    private static ReservationResult reserveNow(int productId, int quantity, Runnable beforeCacheUpdate) {
+        long start = RESERVE.start();
+        try {
+            if (INVENTORY != null) {
+                ReservationResult result = INVENTORY.reserve(productId, quantity);
+                if (result == ReservationResult.RESERVED) {
+                    beforeCacheUpdate.run();
+                    adjustCachedQuantity(productId, -quantity);
+                }
+                RESERVE.stop(start);
+                return result;
+            }
+            ProductRepository repository = Repositories.products();
+            if (repository.tryReserve(productId, quantity)) {
+                beforeCacheUpdate.run();
+                adjustCachedQuantity(productId, -quantity);
+                RESERVE.stop(start);
+                return ReservationResult.RESERVED;
+            }
+
+            // Nothing updated: either the product is gone or there is not enough stock
+            int available = repository.findQuantity(productId);
+            RESERVE.stop(start);
+            if (available < 0) {
+                return ReservationResult.UNKNOWN_PRODUCT;
+            }
+            // Refresh the cached stock so the UI stops offering what is gone
+            beforeCacheUpdate.run();
+            setCachedQuantity(productId, available);
+            return ReservationResult.INSUFFICIENT_STOCK;
+        } catch (SQLException e) {
+            RESERVE.failed(start);
+            System.err.println("Error reserving stock for product " + productId);
+            e.printStackTrace();
+            return ReservationResult.ERROR;
+        }
+    }
+
+    public static boolean release(int productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity to release must be positive");
+        }
+        return ECommerceStore.adjustStock(Map.of(productId, quantity));
+    }
+
+    /**
+     * Puts released units back into the in-memory leases if write-behind
+     * inventory is on and every delta is a release; returns false otherwise, or
+     * if the journal cannot record them, and the caller applies them to the
+     * database.
+     */
+    static boolean releaseLeased(Map<Integer, Integer> deltas) {
+        if (INVENTORY == null) {
+            return false;
+        }
+        for (int delta : deltas.values()) {
+            if (delta < 0) {
+                return false;
+            }
+        }
+        try {
+            INVENTORY.release(deltas);
+            return true;
+        } catch (IOException e) {
+            // Nothing was released; the caller applies them to the database instead
+            System.err.println("Could not write the inventory journal, releasing stock in the database");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Units of the product leased into memory and not in a cart; the database
+     * quantity does not include them.
+     */
+    static int leasedQuantity(int productId) {
+        return INVENTORY == null ? 0 : INVENTORY.leased(productId);
+    }
+
+    /**
+     * Forgets the product's lease after its stock was set outright or it was removed.
+     */
+    static void discardLease(int productId) {
+        if (INVENTORY != null) {
+            INVENTORY.discard(productId);
+        }
+    }
+
+    static void productRemoved(int productId) {
+        discardLease(productId);
+        if (ADMISSION != null) {
+            ADMISSION.forget(productId);
+        }
+    }
+
+    static void adjustCachedQuantity(int productId, int delta) {
+        Product cached = ECommerceStore.getCachedProduct(productId);
+        if (cached == null) {
+            return;
+        }
+        ReentrantLock lock = lockFor(productId);
+        lock.lock();
+        try {
+            cached.setQuantity(Math.max(0, cached.getQuantity() + delta));
+            ECommerceStore.stockChanged(cached);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static void setCachedQuantity(int productId, int quantity) {
+        Product cached = ECommerceStore.getCachedProduct(productId);
+        if (cached == null) {
+            return;
+        }
+        ReentrantLock lock = lockFor(productId);
+        lock.lock();
+        try {
+            cached.setQuantity(quantity);
+            ECommerceStore.stockChanged(cached);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a change of a cached product under the lock its stock is adjusted with.
+     */
+    static void withStockLock(int productId, Runnable change) {
+        ReentrantLock lock = lockFor(productId);
+        lock.lock();
+        try {
+            change.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ReentrantLock lockFor(int productId) {
+        int h = productId * 0x9E3779B9;
+        return LOCKS[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,29 @@
+package Store;
+
+import java.util.Locale;
+
+/**
+ * Where the store keeps its data, chosen once at startup with
+ * -Decommerce.store.engine=mysql|embedded|log|memory (default mysql).
+ */
+public enum StorageEngine {
+    // MySQL server through DatabaseConnection; several app instances can share it
+    MYSQL,
+    // In-process H2 database under ./data; no server, one process at a time
+    EMBEDDED,
+    // Products in a memory-mapped append-only log under ./data, users and orders
+    // in the embedded database; one process at a time
+    LOG,
+    // Plain Java collections; nothing is persisted
+    MEMORY;
+
+    public static StorageEngine configured() {
+        String name = System.getProperty("ecommerce.store.engine", "mysql");
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown storage engine '" + name
+                    + "', expected mysql, embedded, log or memory");
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package Store;
+
+import Models.Admin;
+import Models.User;
+import utils.Metrics;
+import utils.PasswordHasher;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Looks up accounts one username at a time and checks passwords against their
+ * salted hashes.
+ *
+ * Hash checks run on a small bounded pool so a burst of logins cannot take every
+ * CPU; when its queue is full further logins are rejected instead of piling up.
+ * Recently authenticated accounts are kept in an LRU together with a cheap keyed
+ * digest of their password, so a repeat login costs neither a query nor a hash,
+ * and concurrent lookups of the same username share one query.
+ */
+class UserDirectory {
+    private static final int CACHE_SIZE = Integer.getInteger("ecommerce.auth.cacheSize", 10_000);
+    private static final long CACHE_TTL_MS = Long.getLong("ecommerce.auth.cacheTtlMs", 600_000);
+    private static final int HASH_THREADS = Integer.getInteger("ecommerce.auth.hashThreads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int HASH_QUEUE = Integer.getInteger("ecommerce.auth.hashQueue", 128);
+
+    // username -> last successful login, least recently used first
+    private final Map<String, CachedLogin> recent = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedLogin> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final Map<String, CompletableFuture<User>> loading = new ConcurrentHashMap<>();
+    private final Metrics.CacheStats cacheStats = Metrics.cache("cache.logins");
+    private final ThreadPoolExecutor hashing;
+    // Per-process secret mixed into the cached digests
+    private final byte[] cacheSalt = new byte[32];
+
+    UserDirectory() {
+        new SecureRandom().nextBytes(cacheSalt);
+        AtomicInteger threads = new AtomicInteger();
+        hashing = new ThreadPoolExecutor(HASH_THREADS, HASH_THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(HASH_QUEUE), r -> {
+                    Thread t = new Thread(r, "password-hashing-" + threads.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        Metrics.gauge("auth.hashQueue", () -> hashing.getQueue().size());
+    }
+
+    /**
+     * Returns the Admin or Customer, or null if the credentials are wrong. Throws
+     * RejectedExecutionException if too many password checks are already waiting.
+     */
+    User authenticate(String username, String password, String type) throws SQLException {
+        byte[] digest = digest(password);
+        CachedLogin cached;
+        synchronized (recent) {
+            cached = recent.get(username);
+        }
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()
+                && cached.type.equals(type) && MessageDigest.isEqual(cached.digest, digest)) {
+            cacheStats.hit();
+            // A new object each time: a Customer carries its own cart
+            return SqlUserRepository.toUser(username, cached.credential, type);
+        }
+
+        cacheStats.miss();
+        User account = load(username);
+        if (account == null || !typeOf(account).equals(type)) {
+            return null;
+        }
+        String stored = account.getPassword();
+        String credential = onHashingThread(() -> {
+            if (!PasswordHasher.verify(password, stored)) {
+                return null;
+            }
+            return PasswordHasher.needsRehash(stored) ? PasswordHasher.hash(password) : stored;
+        });
+        if (credential == null) {
+            return null;
+        }
+
+        if (!credential.equals(stored)) {
+            // Plain-text or outdated hash: replace it now that the password is known
+            try {
+                Repositories.users().updatePassword(username, credential);
+            } catch (SQLException e) {
+                System.err.println("Error upgrading the password hash of " + username);
+                e.printStackTrace();
+            }
+        }
+        synchronized (recent) {
+            long expiresAt = System.currentTimeMillis() + CACHE_TTL_MS;
+            recent.put(username, new CachedLogin(type, credential, digest, expiresAt));
+        }
+        return SqlUserRepository.toUser(username, credential, type);
+    }
+
+    /**
+     * Registers a customer with one INSERT; the unique username decides races.
+     */
+    boolean register(String username, String password, String type) throws SQLException {
+        String hash = onHashingThread(() -> PasswordHasher.hash(password));
+        return Repositories.users().insert(username, hash, type);
+    }
+
+    private User load(String username) throws SQLException {
+        CompletableFuture<User> mine = new CompletableFuture<>();
+        CompletableFuture<User> inFlight = loading.putIfAbsent(username, mine);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            User account = Repositories.users().findByUsername(username);
+            mine.complete(account);
+            return account;
+        } catch (SQLException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(username, mine);
+        }
+    }
+
+    private <T> T onHashingThread(Callable<T> task) throws SQLException {
+        return await(hashing.submit(task));
+    }
+
+    private static <T> T await(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while checking credentials", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw new SQLException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private byte[] digest(String password) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            sha256.update(cacheSalt);
+            return sha256.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String typeOf(User user) {
+        return user instanceof Admin ? "admin" : "customer";
+    }
+
+    private static final class CachedLogin {
+        final String type;
+        final String credential;
+        final byte[] digest;
+        final long expiresAt;
+
+        CachedLogin(String type, String credential, byte[] digest, long expiresAt) {
+            this.type = type;
+            this.credential = credential;
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
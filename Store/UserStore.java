@@ -0,0 +1,69 @@
+package Store;
+
+import Models.Admin;
+import Models.User;
+import utils.Metrics;
+import utils.PasswordHasher;
+
+import java.sql.SQLException;
+import java.util.concurrent.RejectedExecutionException;
+
+public class UserStore {
+    private static final UserDirectory DIRECTORY = new UserDirectory();
+    private static final Metrics.Timer AUTHENTICATE = Metrics.timer("store.authenticate");
+    private static final Metrics.Timer REGISTER = Metrics.timer("store.registerCustomer");
+
+    /**
+     * Returns the matching Admin or Customer, or null if the credentials are wrong.
+     */
+    public static User authenticate(String username, String password, String type) {
+        long start = AUTHENTICATE.start();
+        try {
+            User user = DIRECTORY.authenticate(username, password, type);
+            AUTHENTICATE.stop(start);
+            return user;
+        } catch (RejectedExecutionException e) {
+            AUTHENTICATE.failed(start);
+            System.err.println("Too many logins in progress, rejected login of " + username);
+        } catch (SQLException e) {
+            AUTHENTICATE.failed(start);
+            System.err.println("Error logging in user");
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    public static RegistrationResult registerCustomer(String username, String password) {
+        long start = REGISTER.start();
+        try {
+            boolean registered = DIRECTORY.register(username, password, "customer");
+            REGISTER.stop(start);
+            return registered ? RegistrationResult.REGISTERED : RegistrationResult.USERNAME_TAKEN;
+        } catch (SQLException | RejectedExecutionException e) {
+            REGISTER.failed(start);
+            System.err.println("Error registering customer");
+            e.printStackTrace();
+            return RegistrationResult.FAILED;
+        }
+    }
+
+    /**
+     * Creates the default admin account if no admin exists. Returns the new admin, or null.
+     */
+    public static Admin ensureDefaultAdmin() {
+        try {
+            if (Repositories.users().countByType("admin") == 0) {
+                String hash = PasswordHasher.hash("admin123");
+                if (Repositories.users().insert("admin", hash, "admin")) {
+                    return new Admin("admin", hash);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error ensuring default admin");
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+}
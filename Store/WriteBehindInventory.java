@@ -0,0 +1,660 @@
+package Store;
+
+import Interfaces.ProductRepository;
+import utils.Metrics;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock reservations served from memory, for products whose row would otherwise
+ * be locked by every add-to-cart and cart removal.
+ *
+ * The process leases units from the database with the usual conditional
+ * decrement, leaseSize at a time, and parks them in striped counters per
+ * product. Reservations and releases then only move units between a counter and
+ * the carts. Because the database has given the units up before any of them is
+ * handed out, no process can oversell. A flusher returns what idle products no
+ * longer need in one batched transaction every flushIntervalMs.
+ *
+ * Every change of a lease balance is appended to a memory-mapped journal. If the
+ * process dies with units still leased, the next start takes them over again
+ * from the journal, and the flusher gives them back to the database, so they
+ * are not lost. The journal is forced on each flush. A power failure can lose
+ * the records since the last flush. Only one process can use a journal at a
+ * time; a second one finds it locked and reserves in the database instead.
+ */
+class WriteBehindInventory {
+    static final boolean ENABLED = Boolean.getBoolean("ecommerce.inventory.writeBehind");
+
+    private static final int LEASE_SIZE = Integer.getInteger("ecommerce.inventory.leaseSize", 20);
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("ecommerce.inventory.flushIntervalMs", 100);
+    // Products untouched this long give their whole lease back
+    private static final long IDLE_RETURN_MS = Long.getLong("ecommerce.inventory.idleReturnMs", 2_000);
+    private static final Path JOURNAL_PATH = Path.of(System.getProperty("ecommerce.inventory.journal",
+            "data/inventory.journal"));
+    // Each counter gets its own cache line
+    private static final int STRIPES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+    private static final int PADDING = 8;
+    // lastUsed is only rewritten when older than this, so hot products do not share one written field
+    private static final long TOUCH_GRANULARITY_MS = 100;
+
+    private final Map<Integer, Lease> leases = new ConcurrentHashMap<>();
+    private final Journal journal;
+    private final ScheduledExecutorService flusher;
+    private final Metrics.CacheStats leaseStats = Metrics.cache("inventory.leases");
+    private final Metrics.Timer leaseTimer = Metrics.timer("inventory.lease");
+    private final Metrics.Timer flushTimer = Metrics.timer("inventory.flush");
+
+    WriteBehindInventory() throws IOException {
+        journal = new Journal(JOURNAL_PATH);
+        // Units still leased when the last process died
+        journal.balances().forEach((id, units) -> lease(id).add(units));
+        Metrics.gauge("inventory.leasedUnits", this::leasedUnits);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(() -> {
+                ReadRouting.bindOwnSession();
+                r.run();
+            }, "inventory-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(() -> flush(false), FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes quantity units from the product's lease, leasing more from the
+     * database when it runs short.
+     */
+    ReservationResult reserve(int productId, int quantity) throws SQLException {
+        Lease lease = lease(productId);
+        lease.touch();
+        if (lease.tryTake(quantity)) {
+            leaseStats.hit();
+            return journalTaken(productId, lease, quantity);
+        }
+        leaseStats.miss();
+
+        synchronized (lease) {
+            // Another thread may have leased while this one waited
+            if (lease.takeGathered(quantity)) {
+                return journalTaken(productId, lease, quantity);
+            }
+            long start = leaseTimer.start();
+            try {
+                ReservationResult leased = leaseMore(productId, lease, quantity);
+                leaseTimer.stop(start);
+                if (leased != ReservationResult.RESERVED) {
+                    return leased;
+                }
+            } catch (SQLException e) {
+                leaseTimer.failed(start);
+                throw e;
+            }
+            if (!lease.takeGathered(quantity)) {
+                return ReservationResult.INSUFFICIENT_STOCK;
+            }
+            return journalTaken(productId, lease, quantity);
+        }
+    }
+
+    // Units already taken from the lease go back if the journal cannot record it
+    private ReservationResult journalTaken(int productId, Lease lease, int quantity) throws SQLException {
+        try {
+            journal.append(productId, -quantity);
+            return ReservationResult.RESERVED;
+        } catch (IOException e) {
+            lease.add(quantity);
+            throw new SQLException("Could not write the inventory journal", e);
+        }
+    }
+
+    /**
+     * Puts released units (productId -> units) back into the leases; the flusher
+     * returns them to the database once the product goes quiet. They are
+     * journaled together first, so if that fails no lease has changed.
+     */
+    void release(Map<Integer, Integer> units) throws IOException {
+        journal.append(units);
+        units.forEach((productId, quantity) -> {
+            Lease lease = lease(productId);
+            lease.touch();
+            lease.add(quantity);
+        });
+    }
+
+    /**
+     * Units of the product currently leased but not in any cart.
+     */
+    int leased(int productId) {
+        Lease lease = leases.get(productId);
+        return lease == null ? 0 : (int) lease.sum();
+    }
+
+    /**
+     * Drops the product's lease without returning it, after its stock was set
+     * outright or the product was deleted.
+     */
+    void discard(int productId) {
+        Lease lease = leases.get(productId);
+        if (lease != null) {
+            synchronized (lease) {
+                long units = lease.drain();
+                if (units <= 0) {
+                    return;
+                }
+                try {
+                    journal.append(productId, (int) -units);
+                } catch (IOException e) {
+                    // Keep journal and lease in step; the flusher returns the units instead
+                    lease.add(units);
+                    System.err.println("Could not discard the lease of product " + productId);
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns every lease to the database, e.g. at shutdown.
+     */
+    void close() {
+        flusher.shutdownNow();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+        journal.close();
+    }
+
+    private ReservationResult leaseMore(int productId, Lease lease, int quantity) throws SQLException {
+        ProductRepository repository = Repositories.products();
+        int wanted = Math.max(LEASE_SIZE, quantity);
+        for (int attempt = 0; attempt < 3; attempt++) {
+            if (repository.tryReserve(productId, wanted)) {
+                try {
+                    journal.append(productId, wanted);
+                } catch (IOException e) {
+                    // Not recorded, so not leased: give the units straight back
+                    repository.adjustStock(Map.of(productId, wanted));
+                    throw new SQLException("Could not write the inventory journal", e);
+                }
+                lease.add(wanted);
+                return ReservationResult.RESERVED;
+            }
+            // Not that many left: lease whatever remains, if it is enough
+            int available = repository.findQuantity(productId);
+            if (available < 0) {
+                return ReservationResult.UNKNOWN_PRODUCT;
+            }
+            if (available + lease.sum() < quantity) {
+                StockReservation.setCachedQuantity(productId, available + (int) lease.sum());
+                return ReservationResult.INSUFFICIENT_STOCK;
+            }
+            wanted = Math.min(wanted, available);
+        }
+        return ReservationResult.INSUFFICIENT_STOCK;
+    }
+
+    private void flush(boolean everything) {
+        long start = flushTimer.start();
+        long now = System.currentTimeMillis();
+        Map<Integer, Integer> returns = new HashMap<>();
+        for (Map.Entry<Integer, Lease> entry : leases.entrySet()) {
+            Lease lease = entry.getValue();
+            long keep = everything || now - lease.lastUsed > IDLE_RETURN_MS ? 0 : LEASE_SIZE;
+            synchronized (lease) {
+                long balance = lease.sum();
+                if (balance > keep) {
+                    int surplus = (int) lease.takeUpTo(balance - keep);
+                    if (surplus > 0) {
+                        // Journal first: a crash before the commit then loses units instead of doubling them
+                        try {
+                            journal.append(entry.getKey(), -surplus);
+                            returns.put(entry.getKey(), surplus);
+                        } catch (IOException e) {
+                            lease.add(surplus);
+                            System.err.println("Could not write the inventory journal, keeping leased units");
+                            e.printStackTrace();
+                        }
+                    }
+                }
+            }
+        }
+
+        if (!returns.isEmpty() && !returnAll(returns)) {
+            // One product at a time, so that one that cannot take its units back
+            // does not hold up the others
+            returns.forEach(this::returnOne);
+        }
+        journal.force();
+        if (returns.isEmpty()) {
+            return; // Idle runs would only flatten the histogram
+        }
+        flushTimer.stop(start);
+    }
+
+    private boolean returnAll(Map<Integer, Integer> returns) {
+        try {
+            return Repositories.products().adjustStock(returns);
+        } catch (SQLException e) {
+            System.err.println("Error returning leased stock to the database");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void returnOne(int productId, int units) {
+        ProductRepository repository = Repositories.products();
+        try {
+            if (repository.adjustStock(Map.of(productId, units))) {
+                return;
+            }
+            if (repository.findQuantity(productId) < 0) {
+                // Deleted since it was leased (journal already says so), nowhere to return to
+                System.err.println("Dropping " + units + " leased units of deleted product " + productId);
+                leases.remove(productId);
+                return;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error returning leased stock of product " + productId);
+            e.printStackTrace();
+        }
+        // Keep the units leased and try again on the next run
+        lease(productId).add(units);
+        try {
+            journal.append(productId, units);
+        } catch (IOException e) {
+            // The journal now undercounts: a crash would lose these units, never double them
+            System.err.println("Could not journal " + units + " units of product " + productId + " kept leased");
+            e.printStackTrace();
+        }
+    }
+
+    // Stable per thread, like LongAdder's probe
+    private static int stripe() {
+        int h = (int) Thread.currentThread().getId() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private Lease lease(int productId) {
+        return leases.computeIfAbsent(productId, id -> new Lease());
+    }
+
+    private double leasedUnits() {
+        long total = 0;
+        for (Lease lease : leases.values()) {
+            total += lease.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Leased units of one product, spread over striped counters so concurrent
+     * shoppers rarely contend on the same one. Taking from several stripes at
+     * once needs the Lease monitor.
+     */
+    private static final class Lease {
+        private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * PADDING);
+        volatile long lastUsed = System.currentTimeMillis();
+
+        void touch() {
+            long now = System.currentTimeMillis();
+            if (now - lastUsed > TOUCH_GRANULARITY_MS) {
+                lastUsed = now;
+            }
+        }
+
+        boolean tryTake(int quantity) {
+            int index = stripeIndex();
+            long units = stripes.get(index);
+            while (units >= quantity) {
+                if (stripes.compareAndSet(index, units, units - quantity)) {
+                    return true;
+                }
+                units = stripes.get(index);
+            }
+            return false;
+        }
+
+        // Caller holds the monitor
+        boolean takeGathered(int quantity) {
+            long units = drain();
+            if (units < quantity) {
+                spread(units);
+                return false;
+            }
+            spread(units - quantity);
+            return true;
+        }
+
+        // Caller holds the monitor; takes as much of the given amount as there is
+        long takeUpTo(long wanted) {
+            long units = drain();
+            long taken = Math.min(units, wanted);
+            spread(units - taken);
+            return taken;
+        }
+
+        void add(long units) {
+            stripes.addAndGet(stripeIndex(), units);
+        }
+
+        long sum() {
+            long total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += stripes.get(i * PADDING);
+            }
+            return total;
+        }
+
+        long drain() {
+            long total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += stripes.getAndSet(i * PADDING, 0);
+            }
+            return total;
+        }
+
+        private void spread(long units) {
+            long share = units / STRIPES;
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.addAndGet(i * PADDING, i == 0 ? share + units % STRIPES : share);
+            }
+        }
+
+        private static int stripeIndex() {
+            return stripe() * PADDING;
+        }
+    }
+
+    /**
+     * Append-only record of lease balance changes, one long (product id, delta)
+     * per change. Every stripe appends to its own region of the file, so shoppers
+     * on different stripes never wait for each other. Replaying all regions gives
+     * every product's balance.
+     *
+     * Two files are used in turn. When a region fills up, the balances are
+     * written to the other file, whose header gets the next generation number
+     * last; on open the file with the highest generation wins. Files are only
+     * ever overwritten in place, never moved or deleted, because Windows refuses
+     * to replace a file that is still mapped.
+     *
+     * A lock on a sibling .lock file, held until close(), keeps a second process
+     * from replaying the same journal and taking over the same units.
+     */
+    private static final class Journal {
+        // generation (0 while the file is being written), region count, region size
+        private static final int HEADER = 16;
+        private static final int REGION_SIZE = 1024 * 1024;
+        private static final int CAPACITY = HEADER + STRIPES * REGION_SIZE;
+
+        private final Path[] files;
+        private final FileChannel lockChannel;
+        private final Region[] regions = new Region[STRIPES];
+        private int current;
+        private long generation;
+        private FileChannel channel;
+        private volatile MappedByteBuffer buffer;
+
+        Journal(Path path) throws IOException {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            lockChannel = lock(path.resolveSibling(path.getFileName() + ".lock"));
+            files = new Path[] {
+                path.resolveSibling(path.getFileName() + ".0"),
+                path.resolveSibling(path.getFileName() + ".1")
+            };
+            for (int i = 0; i < STRIPES; i++) {
+                regions[i] = new Region(HEADER + i * REGION_SIZE);
+            }
+
+            try {
+                open();
+            } catch (IOException | RuntimeException e) {
+                lockChannel.close();
+                throw e;
+            }
+        }
+
+        private static FileChannel lock(Path lockFile) throws IOException {
+            FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            try {
+                if (channel.tryLock() != null) {
+                    return channel;
+                }
+            } catch (OverlappingFileLockException e) {
+                // Held by this process already
+            }
+            channel.close();
+            throw new IOException("Inventory journal " + lockFile + " is locked by another process");
+        }
+
+        private void open() throws IOException {
+            Map<Integer, Integer> recovered = new HashMap<>();
+            current = 1; // so that a first start writes file 0
+            for (int i = 0; i < files.length; i++) {
+                if (!Files.exists(files[i])) {
+                    continue;
+                }
+                try (FileChannel file = FileChannel.open(files[i], StandardOpenOption.READ)) {
+                    if (file.size() < HEADER) {
+                        continue;
+                    }
+                    MappedByteBuffer existing = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                    long fileGeneration = existing.getLong(0);
+                    if (fileGeneration > generation) {
+                        generation = fileGeneration;
+                        current = i;
+                        recovered = replay(existing);
+                    }
+                }
+            }
+            switchFiles(recovered);
+        }
+
+        void append(int productId, int delta) throws IOException {
+            write(new long[] { record(productId, delta) });
+        }
+
+        /**
+         * Records several changes at once: either all of them or, if this throws, none.
+         */
+        void append(Map<Integer, Integer> deltas) throws IOException {
+            long[] records = new long[deltas.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> delta : deltas.entrySet()) {
+                records[i++] = record(delta.getKey(), delta.getValue());
+            }
+            write(records);
+        }
+
+        private void write(long[] records) throws IOException {
+            int bytes = records.length * Long.BYTES;
+            for (int attempt = 0; attempt < 3; attempt++) {
+                Region region = regions[stripe()];
+                region.lock.lock();
+                try {
+                    if (region.end - region.position >= bytes) {
+                        for (long record : records) {
+                            buffer.putLong(region.position, record);
+                            region.position += Long.BYTES;
+                        }
+                        return;
+                    }
+                } finally {
+                    region.lock.unlock();
+                }
+                compact(region, bytes);
+            }
+            throw new IOException("No room in the inventory journal for " + records.length + " records");
+        }
+
+        Map<Integer, Integer> balances() {
+            return replay(buffer);
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() {
+            lockAll();
+            try {
+                buffer.force();
+                closeChannel();
+                // Releases the lock
+                lockChannel.close();
+            } catch (IOException e) {
+                System.err.println("Error unlocking the inventory journal");
+                e.printStackTrace();
+            } finally {
+                unlockAll();
+            }
+        }
+
+        // Starts the other file if the region still lacks room for bytes
+        private void compact(Region region, int bytes) throws IOException {
+            lockAll();
+            try {
+                if (region.end - region.position < bytes) {
+                    switchFiles(replay(buffer));
+                }
+                // Otherwise another appender compacted first
+            } finally {
+                unlockAll();
+            }
+        }
+
+        private static long record(int productId, int delta) {
+            return ((long) productId << 32) | (delta & 0xFFFFFFFFL);
+        }
+
+        // Writes the balances to the file not in use and appends there from now on;
+        // the caller holds every region lock, or is the constructor
+        private void switchFiles(Map<Integer, Integer> balances) throws IOException {
+            int target = 1 - current;
+            FileChannel next = FileChannel.open(files[target], StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            // Region positions only move once the new file is complete, so a failure
+            // leaves appends going to the current file as before
+            int[] positions = new int[STRIPES];
+            MappedByteBuffer mapped;
+            try {
+                mapped = next.map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY);
+                mapped.putLong(0, 0);
+                mapped.force();
+                for (int offset = HEADER; offset < CAPACITY; offset += Long.BYTES) {
+                    mapped.putLong(offset, 0);
+                }
+                for (int r = 0; r < STRIPES; r++) {
+                    positions[r] = regions[r].start;
+                }
+                int index = 0;
+                for (Map.Entry<Integer, Integer> balance : balances.entrySet()) {
+                    int r = index++ % STRIPES;
+                    if (positions[r] == regions[r].end) {
+                        throw new IOException("Too many leased products for the inventory journal");
+                    }
+                    mapped.putLong(positions[r], record(balance.getKey(), balance.getValue()));
+                    positions[r] += Long.BYTES;
+                }
+                mapped.putInt(8, STRIPES);
+                mapped.putInt(12, REGION_SIZE);
+                mapped.force();
+                mapped.putLong(0, generation + 1);
+                mapped.force();
+            } catch (IOException | RuntimeException e) {
+                next.close();
+                throw e;
+            }
+
+            closeChannel();
+            channel = next;
+            buffer = mapped;
+            for (int r = 0; r < STRIPES; r++) {
+                regions[r].position = positions[r];
+            }
+            current = target;
+            generation++;
+        }
+
+        // Reads a journal in the layout stamped in its header, which may come from
+        // a machine with a different number of stripes
+        private static Map<Integer, Integer> replay(MappedByteBuffer journal) {
+            Map<Integer, Integer> balances = new HashMap<>();
+            int regionCount = journal.getInt(8);
+            int regionSize = journal.getInt(12);
+            for (int r = 0; r < regionCount; r++) {
+                int start = HEADER + r * regionSize;
+                int end = Math.min(start + regionSize, journal.capacity());
+                for (int offset = start; offset < end; offset += Long.BYTES) {
+                    long record = journal.getLong(offset);
+                    if (record == 0) {
+                        break;
+                    }
+                    balances.merge((int) (record >>> 32), (int) record, Integer::sum);
+                }
+            }
+            balances.values().removeIf(units -> units <= 0);
+            return balances;
+        }
+
+        private void lockAll() {
+            for (Region region : regions) {
+                region.lock.lock();
+            }
+        }
+
+        private void unlockAll() {
+            for (Region region : regions) {
+                region.lock.unlock();
+            }
+        }
+
+        private void closeChannel() {
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing the inventory journal");
+                e.printStackTrace();
+            }
+        }
+
+        private static final class Region {
+            final ReentrantLock lock = new ReentrantLock();
+            final int start;
+            final int end;
+            int position;
+
+            Region(int start) {
+                this.start = start;
+                this.end = start + REGION_SIZE;
+                this.position = start;
+            }
+        }
+    }
+}
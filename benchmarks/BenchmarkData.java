@@ -0,0 +1,104 @@
+package benchmarks;
+
+import Store.Repositories;
+import Store.StorageEngine;
+import utils.PasswordHasher;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selects the storage engine for a trial and fills it with a generated catalog
+ * and customer accounts. JMH runs every trial in a fresh JVM, so the embedded,
+ * log and in-memory engines always start empty.
+ */
+final class BenchmarkData {
+    static final int CUSTOMERS = 1_000;
+    static final String CUSTOMER_PASSWORD = "secret";
+    // Large enough that checkouts during a trial never run a product dry
+    static final int INITIAL_STOCK = 1_000_000;
+
+    private static final String EMBEDDED_URL = "jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final int INSERT_BATCH = 10_000;
+    private static final String[] WORDS = {
+        "Laptop", "Phone", "Headphones", "Keyboard", "Mouse", "Monitor", "Charger", "Cable",
+        "Speaker", "Camera", "Tablet", "Watch", "Router", "Printer", "Drive", "Case"
+    };
+
+    private BenchmarkData() { }
+
+    /**
+     * Must run before anything touches the store. The mysql engine expects an empty
+     * schema from init.sql at -Decommerce.db.url.
+     */
+    static void load(String engine, int catalogSize) throws SQLException {
+        System.setProperty("ecommerce.store.engine", engine);
+        System.setProperty("ecommerce.store.noSampleData", "true");
+        if (System.getProperty("ecommerce.embedded.url") == null) {
+            System.setProperty("ecommerce.embedded.url", EMBEDDED_URL);
+        }
+        if (System.getProperty("ecommerce.log.dir") == null) {
+            try {
+                System.setProperty("ecommerce.log.dir", Files.createTempDirectory("bench-log").toString());
+            } catch (IOException e) {
+                throw new SQLException("Could not create a directory for the product log", e);
+            }
+        }
+
+        // One hash shared by every customer; hashing each would take most of a minute
+        String passwordHash = PasswordHasher.hash(CUSTOMER_PASSWORD);
+        for (int i = 1; i <= CUSTOMERS; i++) {
+            Repositories.users().insert(customerName(i), passwordHash, "customer");
+        }
+
+        StorageEngine configured = Repositories.engine();
+        if (configured == StorageEngine.MYSQL || configured == StorageEngine.EMBEDDED) {
+            loadProducts(Repositories.dataSource(), catalogSize);
+        } else {
+            for (int i = 1; i <= catalogSize; i++) {
+                Repositories.products().insert(randomName(i), randomPrice(), INITIAL_STOCK);
+            }
+        }
+    }
+
+    private static void loadProducts(DataSource dataSource, int catalogSize) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO products (name, price, quantity) VALUES (?, ?, ?)")) {
+                for (int i = 1; i <= catalogSize; i++) {
+                    stmt.setString(1, randomName(i));
+                    stmt.setDouble(2, randomPrice());
+                    stmt.setInt(3, INITIAL_STOCK);
+                    stmt.addBatch();
+                    if (i % INSERT_BATCH == 0) {
+                        stmt.executeBatch();
+                        conn.commit();
+                    }
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static String randomName(int i) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+    }
+
+    private static double randomPrice() {
+        return ThreadLocalRandom.current().nextInt(100, 10_000_000) / 100.0;
+    }
+
+    static String customerName(int i) {
+        return "customer" + i;
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import Models.Order;
+import Store.OrderService;
+import Store.ReservationResult;
+import Store.StockReservation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart operations: adding to and removing from a cart (reserve and release stock)
+ * and a single-item checkout through the group-commit order writer.
+ * Run with -t to see how they scale with concurrent shoppers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartBenchmark {
+
+    @Benchmark
+    public boolean reserveAndRelease(CatalogState catalog) {
+        int id = catalog.randomProductId();
+        ReservationResult result = StockReservation.reserve(id, 1);
+        return result.isReserved() && StockReservation.release(id, 1);
+    }
+
+    @Benchmark
+    public Order checkout(CatalogState catalog) {
+        int id = catalog.randomProductId();
+        if (!StockReservation.reserve(id, 1).isReserved()) {
+            return null;
+        }
+        return OrderService.placeOrder(catalog.randomCustomer(), Map.of(id, 1)).join();
+    }
+}
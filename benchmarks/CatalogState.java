@@ -0,0 +1,39 @@
+package benchmarks;
+
+import Store.ECommerceStore;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A storage engine holding catalogSize products, loaded into the store cache.
+ * Larger sizes are selected on the command line, e.g. -p catalogSize=1000000,10000000;
+ * -p engine=mysql runs against the database at -Decommerce.db.url.
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+    @Param({"embedded", "log", "memory"})
+    public String engine;
+
+    @Param({"1000", "100000"})
+    public int catalogSize;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkData.load(engine, catalogSize);
+        ECommerceStore.syncCatalog();
+    }
+
+    int randomProductId() {
+        return ThreadLocalRandom.current().nextInt(1, catalogSize + 1);
+    }
+
+    String randomCustomer() {
+        return BenchmarkData.customerName(ThreadLocalRandom.current().nextInt(1, BenchmarkData.CUSTOMERS + 1));
+    }
+}
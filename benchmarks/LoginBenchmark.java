@@ -0,0 +1,58 @@
+package benchmarks;
+
+import Models.User;
+import Store.UserStore;
+import utils.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Logins of customers who logged in before, which the user directory answers
+ * from its cache, and the full password hash check that a first login or a
+ * cache miss pays on top of the account query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+    private static final int RETURNING_CUSTOMERS = 100;
+    private static final String HASH = PasswordHasher.hash(BenchmarkData.CUSTOMER_PASSWORD);
+
+    @State(Scope.Benchmark)
+    public static class ReturningCustomers {
+        @Setup(Level.Trial)
+        public void logInOnce(CatalogState catalog) {
+            IntStream.rangeClosed(1, RETURNING_CUSTOMERS).parallel().forEach(i ->
+                    UserStore.authenticate(BenchmarkData.customerName(i), BenchmarkData.CUSTOMER_PASSWORD, "customer"));
+        }
+
+        String randomCustomer() {
+            return BenchmarkData.customerName(ThreadLocalRandom.current().nextInt(1, RETURNING_CUSTOMERS + 1));
+        }
+    }
+
+    @Benchmark
+    public User repeatLogin(ReturningCustomers customers) {
+        return UserStore.authenticate(customers.randomCustomer(), BenchmarkData.CUSTOMER_PASSWORD, "customer");
+    }
+
+    @Benchmark
+    public boolean passwordCheck() {
+        return PasswordHasher.verify(BenchmarkData.CUSTOMER_PASSWORD, HASH);
+    }
+}
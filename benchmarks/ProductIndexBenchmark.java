@@ -0,0 +1,70 @@
+package benchmarks;
+
+import Models.Product;
+import Store.ProductIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ProductIndex lookups against the linear list scan it replaced.
+ * Needs no database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductIndexBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private List<Product> list;
+    private ProductIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        list = new ArrayList<>(catalogSize);
+        index = new ProductIndex(catalogSize);
+        for (int id = 1; id <= catalogSize; id++) {
+            Product p = new Product(id, "Product " + id, id, 10);
+            list.add(p);
+            index.put(p);
+        }
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, catalogSize + 1);
+    }
+
+    @Benchmark
+    public Product indexLookup() {
+        return index.get(randomId());
+    }
+
+    @Benchmark
+    public Product linearLookup() {
+        int id = randomId();
+        for (Product p : list) {
+            if (p.getId() == id) {
+                return p;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,46 @@
+package benchmarks;
+
+import Models.Product;
+import Store.ECommerceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog reads: cached lookups by id, full listings (which include a delta sync
+ * against the change log) and the in-memory search and price indexes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductReadBenchmark {
+
+    @Benchmark
+    public Product getProductById(CatalogState catalog) {
+        return ECommerceStore.getProductById(catalog.randomProductId());
+    }
+
+    @Benchmark
+    public List<Product> getAllProducts(CatalogState catalog) {
+        return ECommerceStore.getAllProducts();
+    }
+
+    @Benchmark
+    public List<Product> searchProducts(CatalogState catalog) {
+        return ECommerceStore.searchProducts("wireles charger", 20);
+    }
+
+    @Benchmark
+    public List<Product> cheapestInPriceRange(CatalogState catalog) {
+        return ECommerceStore.getProductsInPriceRange(1_000, 5_000, true, 20);
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import Store.ECommerceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admin writes: each one is a database round trip plus the cache and index updates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductWriteBenchmark {
+
+    @Benchmark
+    public void addProduct(CatalogState catalog) {
+        ECommerceStore.addProduct("Benchmark Product", 99.0, 10);
+    }
+
+    @Benchmark
+    public boolean updateProduct(CatalogState catalog) {
+        int id = catalog.randomProductId();
+        double price = ThreadLocalRandom.current().nextInt(100, 10_000_000) / 100.0;
+        return ECommerceStore.updateProduct(id, "Updated Product " + id, price, BenchmarkData.INITIAL_STOCK);
+    }
+}
@@ -138,6 +138,7 @@ echo.
     :: Download MySQL connector
     echo Checking for MySQL connector...
     call :check_mysql_connector
+    call :check_h2_jar
     
     echo === All dependencies have been installed successfully! ===
     echo You can now run the application with build.bat
@@ -217,6 +218,7 @@ if "%INSTALL_DEPS%"=="true" (
 
 :: Step 1: Check for MySQL connector
 call :check_mysql_connector
+call :check_h2_jar
 
 :: Step 2: Check Java
 call :check_java
@@ -291,6 +293,18 @@ exit /b 0
     )
     exit /b 0
 
+:check_h2_jar
+    :: Only needed for the embedded storage engine, so a failed download is not fatal
+    if not exist "lib\h2-2.2.224.jar" (
+        echo Downloading H2 database for the embedded storage engine...
+        if not exist "lib" mkdir lib
+        powershell -Command "& { [Net.ServicePointManager]::SecurityProtocol = [Net.SecurityProtocolType]::Tls12; Invoke-WebRequest -Uri 'https://repo1.maven.org/maven2/com/h2database/h2/2.2.224/h2-2.2.224.jar' -OutFile 'lib\h2-2.2.224.jar' }"
+        if not exist "lib\h2-2.2.224.jar" (
+            echo H2 not available, the embedded engine will not work. MySQL and memory engines will.
+        )
+    )
+    exit /b 0
+
 :check_java
     echo Checking if Java is installed...
     
@@ -432,7 +446,7 @@ exit /b 0
     )
     
     echo Compiling Java files...
-    javac -d dist -cp .;lib\mysql-connector-j-8.0.33.jar Main.java Models\*.java GUI\*.java Store\*.java Interfaces\*.java utils\*.java
+    javac -d dist -cp .;lib\mysql-connector-j-8.0.33.jar Main.java Models\*.java GUI\*.java Store\*.java Server\*.java Interfaces\*.java utils\*.java
     
     if %ERRORLEVEL% neq 0 (
         echo Compilation failed!
@@ -442,6 +456,7 @@ exit /b 0
     :: Copy library files
     echo Copying library files...
     copy lib\mysql-connector-j-8.0.33.jar dist\lib\ >nul
+    if exist "lib\h2-2.2.224.jar" copy lib\h2-2.2.224.jar dist\lib\ >nul
     
     echo Build completed successfully! All class files are in the dist folder.
     exit /b 0
@@ -450,7 +465,8 @@ exit /b 0
     echo Running the application...
     
     cd dist
-    java -cp .;lib\mysql-connector-j-8.0.33.jar Main
+    :: JAVA_OPTS passes settings through, e.g. set JAVA_OPTS=-Decommerce.store.engine=embedded
+    java %JAVA_OPTS% -cp .;lib\mysql-connector-j-8.0.33.jar;lib\h2-2.2.224.jar Main
     cd ..
     
     echo Application exited. You can run it again with 'build.bat --run-only'
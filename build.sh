@@ -153,6 +153,25 @@ function check_mysql_connector {
     fi
 }
 
+# Check if the H2 jar exists (only needed for the embedded storage engine)
+function check_h2_jar {
+    if [ ! -f "lib/h2-2.2.224.jar" ]; then
+        echo -e "${YELLOW}Downloading H2 database for the embedded storage engine...${NC}"
+        
+        mkdir -p lib
+        
+        if command -v curl &> /dev/null; then
+            curl -L "https://repo1.maven.org/maven2/com/h2database/h2/2.2.224/h2-2.2.224.jar" -o lib/h2-2.2.224.jar
+        elif command -v wget &> /dev/null; then
+            wget "https://repo1.maven.org/maven2/com/h2database/h2/2.2.224/h2-2.2.224.jar" -O lib/h2-2.2.224.jar
+        fi
+        
+        if [ ! -f "lib/h2-2.2.224.jar" ]; then
+            echo -e "${YELLOW}H2 not available, the embedded engine will not work. MySQL and memory engines will.${NC}"
+        fi
+    fi
+}
+
 # Function to install Docker
 function install_docker {
     echo -e "${YELLOW}Installing Docker for $OS...${NC}"
@@ -392,6 +411,7 @@ function install_dependencies {
     # Download MySQL connector
     echo -e "${YELLOW}Checking for MySQL connector...${NC}"
     check_mysql_connector
+    check_h2_jar
     
     echo -e "${GREEN}=== All dependencies have been installed successfully! ===${NC}"
     echo -e "${GREEN}You can now run the application with ./build.sh${NC}"
@@ -613,7 +633,7 @@ function compile_app {
         CP_SEP=":"
     fi
     
-    javac -d dist -cp .$CP_SEP"lib/mysql-connector-j-8.0.33.jar" Main.java Models/*.java GUI/*.java Store/*.java Interfaces/*.java utils/*.java
+    javac -d dist -cp .$CP_SEP"lib/mysql-connector-j-8.0.33.jar" Main.java Models/*.java GUI/*.java Store/*.java Server/*.java Interfaces/*.java utils/*.java
     
     if [ $? -ne 0 ]; then
         echo -e "${RED}Compilation failed!${NC}"
@@ -623,6 +643,9 @@ function compile_app {
     # Copy library files
     echo -e "${YELLOW}Copying library files...${NC}"
     cp lib/mysql-connector-j-8.0.33.jar dist/lib/
+    if [ -f "lib/h2-2.2.224.jar" ]; then
+        cp lib/h2-2.2.224.jar dist/lib/
+    fi
     
     echo -e "${GREEN}Build completed successfully! All class files are in the dist folder.${NC}"
 }
@@ -639,7 +662,8 @@ function run_app {
     fi
     
     cd dist
-    java -cp .$CP_SEP"lib/mysql-connector-j-8.0.33.jar" Main
+    # JAVA_OPTS passes settings through, e.g. JAVA_OPTS="-Decommerce.store.engine=embedded"
+    java $JAVA_OPTS -cp .$CP_SEP"lib/mysql-connector-j-8.0.33.jar"$CP_SEP"lib/h2-2.2.224.jar" Main
     JAVA_EXIT_CODE=$?
     cd ..
     
@@ -733,6 +757,7 @@ show_banner
 
 # Step 1: Check for MySQL connector
 check_mysql_connector
+check_h2_jar
 
 # Step 2: Check and install prerequisites
 check_and_install_java
@@ -13,7 +13,52 @@ CREATE TABLE products (
     id INT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(100) NOT NULL,
     price DOUBLE NOT NULL,
-    quantity INT NOT NULL
+    quantity INT NOT NULL,
+    -- Keyset pagination by price or name; InnoDB appends the id to each entry
+    INDEX idx_products_price (price),
+    INDEX idx_products_name (name)
+);
+
+-- Change log for products, one row per insert/update/delete.
+-- change_id acts as the catalog version: clients remember the highest one they
+-- have applied and fetch only the products touched since then.
+CREATE TABLE product_changes (
+    change_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    product_id INT NOT NULL,
+    changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_product_changes_changed_at (changed_at)
+);
+
+CREATE TRIGGER products_after_insert AFTER INSERT ON products
+    FOR EACH ROW INSERT INTO product_changes (product_id) VALUES (NEW.id);
+
+CREATE TRIGGER products_after_update AFTER UPDATE ON products
+    FOR EACH ROW INSERT INTO product_changes (product_id) VALUES (NEW.id);
+
+CREATE TRIGGER products_after_delete AFTER DELETE ON products
+    FOR EACH ROW INSERT INTO product_changes (product_id) VALUES (OLD.id);
+
+-- Keep one day of history; clients that fall further behind do a full reload
+CREATE EVENT prune_product_changes ON SCHEDULE EVERY 1 HOUR
+    DO DELETE FROM product_changes WHERE changed_at < NOW() - INTERVAL 1 DAY;
+
+-- Create orders tables
+CREATE TABLE orders (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50) NOT NULL,
+    total DOUBLE NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_orders_username (username)
+);
+
+-- No foreign key to products: order history must survive product removal
+CREATE TABLE order_items (
+    order_id INT NOT NULL,
+    product_id INT NOT NULL,
+    quantity INT NOT NULL,
+    unit_price DOUBLE NOT NULL,
+    PRIMARY KEY (order_id, product_id),
+    FOREIGN KEY (order_id) REFERENCES orders(id)
 );
 
 -- Insert default admin user
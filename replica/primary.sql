@@ -0,0 +1,3 @@
+-- Account the read replica connects with to copy the binary log
+CREATE USER 'repl'@'%' IDENTIFIED BY 'replpass';
+GRANT REPLICATION SLAVE ON *.* TO 'repl'@'%';
@@ -0,0 +1,16 @@
+-- Runs once when the replica's volume is created. The schema and data then
+-- arrive from the primary, replayed from the start of its binary log.
+CREATE DATABASE IF NOT EXISTS ecommerce_db;
+
+-- Read-only account the application connects to the replica with
+CREATE USER 'ecomreader'@'%' IDENTIFIED BY 'ecomreader';
+GRANT SELECT ON ecommerce_db.* TO 'ecomreader'@'%';
+
+CHANGE REPLICATION SOURCE TO
+    SOURCE_HOST = 'mysql',
+    SOURCE_PORT = 3306,
+    SOURCE_USER = 'repl',
+    SOURCE_PASSWORD = 'replpass',
+    SOURCE_AUTO_POSITION = 1,
+    GET_SOURCE_PUBLIC_KEY = 1;
+START REPLICA;
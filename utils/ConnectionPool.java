@@ -0,0 +1,408 @@
+package utils;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of physical JDBC connections.
+ *
+ * Callers get a proxy whose close() hands the physical connection back to the
+ * pool, so the existing try-with-resources blocks keep working unchanged.
+ */
+public class ConnectionPool implements DataSource {
+    // Connections used this recently are handed out without a validation round trip
+    private static final long VALIDATION_BYPASS_MS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_INTERVAL_MS = 30_000;
+    // Prepared statements kept open per connection, 0 to prepare every time
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("ecommerce.db.statementCacheSize", 64);
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakDetectionMs;
+
+    // Most recently returned connections sit at the head so cold ones age out at the tail
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Pool metrics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    // Same waits as a histogram in the shared registry, plus live gauges
+    private final Metrics.Timer waitTimer;
+
+    public ConnectionPool(String url, String username, String password, int minSize, int maxSize,
+                          long borrowTimeoutMs, long idleTimeoutMs, long leakDetectionMs) {
+        this("pool", url, username, password, minSize, maxSize, borrowTimeoutMs, idleTimeoutMs, leakDetectionMs);
+    }
+
+    /**
+     * A pool whose metrics are named metricsName.wait, metricsName.active, etc., so
+     * several pools can be told apart.
+     */
+    public ConnectionPool(String metricsName, String url, String username, String password, int minSize,
+                          int maxSize, long borrowTimeoutMs, long idleTimeoutMs, long leakDetectionMs) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakDetectionMs = leakDetectionMs;
+        this.permits = new Semaphore(maxSize, true);
+        this.waitTimer = Metrics.timer(metricsName + ".wait");
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+                HOUSEKEEPING_INTERVAL_MS, HOUSEKEEPING_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        Metrics.gauge(metricsName + ".active", this::getActiveCount);
+        Metrics.gauge(metricsName + ".idle", this::getIdleCount);
+        Metrics.gauge(metricsName + ".waiting", this::getWaitingThreads);
+        Metrics.gauge(metricsName + ".timeouts", this::getTimeoutCount);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                waitTimer.failed(start);
+                throw new SQLException("Timed out after " + borrowTimeoutMs
+                        + "ms waiting for a database connection (active=" + getActiveCount()
+                        + ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowTrace = leakDetectionMs > 0 ? new Exception("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            inUse.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            destroy(pooled);
+        }
+        return create();
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastReturnedAt < VALIDATION_BYPASS_MS) {
+            return true;
+        }
+        try {
+            return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection physical;
+        try {
+            physical = DriverManager.getConnection(url, username, password);
+        } catch (SQLException e) {
+            System.err.println("Failed to connect to database");
+            throw e;
+        }
+        totalConnections.incrementAndGet();
+        // With -Decommerce.db.trace=true statements are timed and slow ones logged
+        return new PooledConnection(JdbcTracing.ENABLED ? JdbcTracing.wrap(physical) : physical);
+    }
+
+    private void release(PooledConnection pooled) {
+        inUse.remove(pooled);
+        try {
+            if (closed || pooled.physical.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            // Never hand an open transaction to the next borrower
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Already broken, nothing more to do
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrowCount.increment();
+        waitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        waitTimer.record(nanos);
+    }
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            detectLeaks();
+            fillToMinimum();
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed");
+            e.printStackTrace();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && totalConnections.get() > minSize) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastReturnedAt > idleTimeoutMs && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        if (leakDetectionMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : inUse) {
+            if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionMs) {
+                pooled.leakReported = true;
+                leakCount.increment();
+                System.err.println("Possible connection leak: connection held for "
+                        + (now - pooled.borrowedAt) + "ms");
+                if (pooled.borrowTrace != null) {
+                    pooled.borrowTrace.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && totalConnections.get() < minSize) {
+            try {
+                PooledConnection pooled = create();
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                // Database unavailable, try again on the next run
+                return;
+            }
+        }
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    // Pool metrics
+
+    public int getActiveCount() { return inUse.size(); }
+
+    public int getIdleCount() { return idle.size(); }
+
+    public int getTotalCount() { return totalConnections.get(); }
+
+    public int getMaxSize() { return maxSize; }
+
+    public int getWaitingThreads() { return permits.getQueueLength(); }
+
+    public long getBorrowCount() { return borrowCount.sum(); }
+
+    public long getTimeoutCount() { return timeoutCount.sum(); }
+
+    public long getLeakCount() { return leakCount.sum(); }
+
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.sum();
+        return borrows == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / borrows;
+    }
+
+    public double getMaxWaitMillis() { return maxWaitNanos.get() / 1_000_000.0; }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d, idle=%d, total=%d/%d, waiting=%d, avgWait=%.2fms, maxWait=%.2fms, timeouts=%d",
+                getActiveCount(), getIdleCount(), getTotalCount(), maxSize, getWaitingThreads(),
+                getAverageWaitMillis(), getMaxWaitMillis(), getTimeoutCount());
+    }
+
+    // DataSource plumbing
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool credentials are fixed at construction");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() { return null; }
+
+    @Override
+    public void setLogWriter(PrintWriter out) { }
+
+    @Override
+    public void setLoginTimeout(int seconds) { }
+
+    @Override
+    public int getLoginTimeout() { return 0; }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        final StatementCache statements;
+        volatile long borrowedAt;
+        volatile long lastReturnedAt;
+        volatile Exception borrowTrace;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = STATEMENT_CACHE_SIZE > 0 ? new StatementCache(physical, STATEMENT_CACHE_SIZE) : null;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Handle(this));
+        }
+    }
+
+    /**
+     * The logical connection given to one borrower; closing it returns the physical one.
+     */
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (released) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (pooled.statements != null && method.getName().equals("prepareStatement")) {
+                return pooled.statements.prepare(method, args);
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
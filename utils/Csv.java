@@ -0,0 +1,131 @@
+package utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV reader and writer: comma separated, fields optionally in
+ * double quotes, "" for a quote inside a quoted field, line breaks allowed in
+ * quoted fields.
+ */
+public final class Csv {
+    private Csv() { }
+
+    /**
+     * Formats one record, quoting fields only where needed, without a line break.
+     */
+    public static String format(List<String> fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendField(sb, fields.get(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends one field, quoted only if needed; null is written as an empty field.
+     */
+    public static StringBuilder appendField(StringBuilder sb, String field) {
+        if (field == null) {
+            return sb;
+        }
+        if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0
+                || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+            return sb.append('"').append(field.replace("\"", "\"\"")).append('"');
+        }
+        return sb.append(field);
+    }
+
+    /**
+     * Reads one record at a time, so files of any size stream through.
+     */
+    public static class Parser {
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+        private long records;
+
+        public Parser(Reader reader) {
+            this.in = reader;
+        }
+
+        /**
+         * Returns the fields of the next record, or null at the end of the input.
+         * Blank lines are skipped.
+         */
+        public List<String> readRecord() throws IOException {
+            int c = read();
+            while (c == '\r' || c == '\n') {
+                c = read();
+            }
+            if (c == -1) {
+                return null;
+            }
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean wasQuoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field in record " + (records + 1));
+                    }
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == ',' || c == '\n' || c == '\r' || c == -1) {
+                    fields.add(wasQuoted ? field.toString() : field.toString().trim());
+                    field.setLength(0);
+                    wasQuoted = false;
+                    if (c != ',') {
+                        break;
+                    }
+                } else if (c == '"' && field.toString().isBlank()) {
+                    field.setLength(0);
+                    quoted = true;
+                    wasQuoted = true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            records++;
+            return fields;
+        }
+
+        /**
+         * Number of records returned so far.
+         */
+        public long getRecordCount() {
+            return records;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+    }
+}
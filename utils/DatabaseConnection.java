@@ -1,58 +1,193 @@
 package utils;
 
+import javax.sql.DataSource;
+import java.io.PrintWriter;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
 
 /**
  * Singleton class for managing database connections
+ *
+ * Besides the primary, any number of read replicas can be configured with
+ * -Decommerce.db.replicaUrls=url1,url2; each gets its own pool of the same size.
  */
 public class DatabaseConnection {
-    private static final String JDBC_URL = "jdbc:mysql://localhost:3306/ecommerce_db";
-    private static final String USERNAME = "ecomuser";
-    private static final String PASSWORD = "ecompass";
-    
+    // rewriteBatchedStatements lets executeBatch() go to the server in one round trip;
+    // useCursorFetch makes statements with a fetch size stream rows instead of buffering them all;
+    // useServerPrepStmts parses and plans each statement once on the server, and the pool keeps
+    // the prepared statements open so that reuse skips it
+    private static final String DEFAULT_URL = "jdbc:mysql://localhost:3306/ecommerce_db"
+            + "?rewriteBatchedStatements=true&useCursorFetch=true&useServerPrepStmts=true";
+
+    // Overridable with -Decommerce.db.url=... etc., e.g. to point the benchmarks at an embedded database
+    private static final String JDBC_URL = System.getProperty("ecommerce.db.url", DEFAULT_URL);
+    private static final String USERNAME = System.getProperty("ecommerce.db.user", "ecomuser");
+    private static final String PASSWORD = System.getProperty("ecommerce.db.password", "ecompass");
+    private static final String REPLICA_URLS = System.getProperty("ecommerce.db.replicaUrls", "");
+    private static final String REPLICA_USERNAME = System.getProperty("ecommerce.db.replicaUser", USERNAME);
+    private static final String REPLICA_PASSWORD = System.getProperty("ecommerce.db.replicaPassword", PASSWORD);
+    // A replica that failed to hand out a connection is left alone this long
+    private static final long REPLICA_RETRY_MS = Long.getLong("ecommerce.db.replicaRetryMs", 30_000);
+
+    // Pool settings, overridable with -Decommerce.db.pool.<name>=<value>
+    private static final int POOL_MIN_SIZE = Integer.getInteger("ecommerce.db.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("ecommerce.db.pool.maxSize", 10);
+    private static final long BORROW_TIMEOUT_MS = Long.getLong("ecommerce.db.pool.borrowTimeoutMs", 5_000);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("ecommerce.db.pool.idleTimeoutMs", 600_000);
+    private static final long LEAK_DETECTION_MS = Long.getLong("ecommerce.db.pool.leakDetectionMs", 0);
+
     private static DatabaseConnection instance;
-    private Connection connection;
-    
+    private final ConnectionPool pool;
+    private final List<ConnectionPool> replicas = new ArrayList<>();
+    private final DataSource readDataSource;
+
     private DatabaseConnection() {
-        try {
-            // Load the MySQL JDBC driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found");
-            e.printStackTrace();
+        if (JDBC_URL.startsWith("jdbc:mysql:") || REPLICA_URLS.contains("jdbc:mysql:")) {
+            try {
+                // Load the MySQL JDBC driver
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                System.err.println("MySQL JDBC Driver not found");
+                e.printStackTrace();
+            }
         }
+        pool = new ConnectionPool(JDBC_URL, USERNAME, PASSWORD, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, LEAK_DETECTION_MS);
+        for (String url : REPLICA_URLS.split(",")) {
+            if (!url.isBlank()) {
+                String name = "pool.replica" + (replicas.size() + 1);
+                replicas.add(new ConnectionPool(name, url.trim(), REPLICA_USERNAME, REPLICA_PASSWORD,
+                        POOL_MIN_SIZE, POOL_MAX_SIZE, BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, LEAK_DETECTION_MS));
+            }
+        }
+        readDataSource = replicas.isEmpty() ? pool : new ReplicaDataSource();
     }
-    
+
     public static synchronized DatabaseConnection getInstance() {
         if (instance == null) {
             instance = new DatabaseConnection();
         }
         return instance;
     }
-    
+
+    /**
+     * Borrows a connection from the pool. Closing it returns it to the pool.
+     */
     public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                connection = DriverManager.getConnection(JDBC_URL, USERNAME, PASSWORD);
-            } catch (SQLException e) {
-                System.err.println("Failed to connect to database");
-                e.printStackTrace();
-                throw e;
-            }
+        try {
+            return pool.getConnection();
+        } catch (SQLException e) {
+            System.err.println("Failed to obtain database connection");
+            e.printStackTrace();
+            throw e;
         }
-        return connection;
     }
-    
+
+    public DataSource getDataSource() {
+        return pool;
+    }
+
+    /**
+     * Data source for reads that may lag behind the primary: the replicas in
+     * turn, or the primary when there are none.
+     */
+    public DataSource getReadDataSource() {
+        return readDataSource;
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
     public void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing database connection");
-                e.printStackTrace();
+        pool.close();
+        replicas.forEach(ConnectionPool::close);
+    }
+
+    /**
+     * Spreads connections over the replicas. Each thread sticks to one replica,
+     * assigned round-robin on its first read, which keeps a thread's reads on
+     * one replica's view of the data most of the time. It is no guarantee that
+     * reads never go back in time: the replicas lag by different amounts, and a
+     * thread moves to another one when its own fails. A replica that cannot hand
+     * out a connection is marked down for ecommerce.db.replicaRetryMs, so reads
+     * stop waiting on it, and the primary serves when all of them are down.
+     */
+    private final class ReplicaDataSource implements DataSource {
+        private final AtomicInteger next = new AtomicInteger();
+        private final ThreadLocal<Integer> assigned =
+                ThreadLocal.withInitial(() -> Math.floorMod(next.getAndIncrement(), replicas.size()));
+        // System.nanoTime() until which each replica is skipped
+        private final AtomicLongArray downUntil = new AtomicLongArray(replicas.size());
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            int first = assigned.get();
+            for (int i = 0; i < replicas.size(); i++) {
+                int index = (first + i) % replicas.size();
+                long now = System.nanoTime();
+                if (now - downUntil.get(index) < 0) {
+                    continue;
+                }
+                try {
+                    Connection connection = replicas.get(index).getConnection();
+                    if (i > 0) {
+                        assigned.set(index);
+                    }
+                    return connection;
+                } catch (SQLException e) {
+                    downUntil.set(index, now + TimeUnit.MILLISECONDS.toNanos(REPLICA_RETRY_MS));
+                    System.err.println("Read replica " + (index + 1) + " unavailable, retrying in "
+                            + REPLICA_RETRY_MS + " ms: " + e.getMessage());
+                }
+            }
+            return pool.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Replica credentials are configured per pool");
+        }
+
+        @Override
+        public PrintWriter getLogWriter() { return null; }
+
+        @Override
+        public void setLogWriter(PrintWriter out) { }
+
+        @Override
+        public void setLoginTimeout(int seconds) { }
+
+        @Override
+        public int getLoginTimeout() { return 0; }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            if (iface.isInstance(this)) {
+                return iface.cast(this);
             }
+            throw new SQLException("Not a wrapper for " + iface.getName());
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return iface.isInstance(this);
         }
     }
-}
\ No newline at end of file
+}
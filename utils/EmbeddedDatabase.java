@@ -0,0 +1,103 @@
+package utils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * In-process H2 database (in MySQL mode) used by the embedded storage engine.
+ * Needs the H2 jar on the classpath but no server; the schema from init.sql is
+ * created on first start.
+ */
+public class EmbeddedDatabase {
+    // File database under ./data by default; a jdbc:h2:mem: URL keeps it in memory only
+    private static final String JDBC_URL = System.getProperty("ecommerce.embedded.url",
+            "jdbc:h2:./data/ecommerce;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+
+    private static EmbeddedDatabase instance;
+    private final ConnectionPool pool;
+    private final boolean created;
+
+    private EmbeddedDatabase() throws SQLException {
+        pool = new ConnectionPool(JDBC_URL, "sa", "",
+                Integer.getInteger("ecommerce.db.pool.minSize", 2),
+                Integer.getInteger("ecommerce.db.pool.maxSize", 10),
+                Long.getLong("ecommerce.db.pool.borrowTimeoutMs", 5_000),
+                Long.getLong("ecommerce.db.pool.idleTimeoutMs", 600_000),
+                Long.getLong("ecommerce.db.pool.leakDetectionMs", 0));
+        try (Connection conn = pool.getConnection()) {
+            created = !tableExists(conn, "products");
+            if (created) {
+                createSchema(conn);
+            }
+        }
+    }
+
+    public static synchronized EmbeddedDatabase getInstance() throws SQLException {
+        if (instance == null) {
+            instance = new EmbeddedDatabase();
+        }
+        return instance;
+    }
+
+    public DataSource getDataSource() {
+        return pool;
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * True if this run created the schema, so the database starts out empty.
+     */
+    public boolean isNew() {
+        return created;
+    }
+
+    public void close() {
+        pool.close();
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getTables(null, null, table, new String[] {"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private static void createSchema(Connection conn) throws SQLException {
+        // Same tables as init.sql. No product_changes log: only this process can open
+        // the database, so the store cache never misses a change.
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users ("
+                    + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "username VARCHAR(50) NOT NULL UNIQUE, "
+                    + "password VARCHAR(100) NOT NULL, "
+                    + "user_type ENUM('admin', 'customer') NOT NULL)");
+            stmt.execute("CREATE TABLE products ("
+                    + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "name VARCHAR(100) NOT NULL, "
+                    + "price DOUBLE NOT NULL, "
+                    + "quantity INT NOT NULL)");
+            stmt.execute("CREATE INDEX idx_products_price ON products (price)");
+            stmt.execute("CREATE INDEX idx_products_name ON products (name)");
+            stmt.execute("CREATE TABLE orders ("
+                    + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                    + "username VARCHAR(50) NOT NULL, "
+                    + "total DOUBLE NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            stmt.execute("CREATE INDEX idx_orders_username ON orders (username)");
+            stmt.execute("CREATE TABLE order_items ("
+                    + "order_id INT NOT NULL, "
+                    + "product_id INT NOT NULL, "
+                    + "quantity INT NOT NULL, "
+                    + "unit_price DOUBLE NOT NULL, "
+                    + "PRIMARY KEY (order_id, product_id), "
+                    + "FOREIGN KEY (order_id) REFERENCES orders(id))");
+        }
+    }
+}
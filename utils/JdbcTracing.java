@@ -0,0 +1,296 @@
+package utils;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Optional statement tracing, switched on with -Decommerce.db.trace=true.
+ *
+ * The pool then wraps each physical connection so that its statements time every
+ * execute and count the rows read from their result sets. Statements slower than
+ * ecommerce.db.slowQueryMs (execute plus fetch) are written to a rotating log,
+ * with the types of the bound parameters but never their values. When tracing
+ * is off, connections are not wrapped at all.
+ */
+public final class JdbcTracing {
+    public static final boolean ENABLED = Boolean.getBoolean("ecommerce.db.trace");
+
+    private static final long SLOW_QUERY_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("ecommerce.db.slowQueryMs", 200));
+    private static final String LOG_PATTERN = System.getProperty("ecommerce.db.slowQueryLog",
+            "logs/slow-queries.%g.log");
+    private static final int LOG_LIMIT_BYTES = Integer.getInteger("ecommerce.db.slowQueryLogBytes", 10 * 1024 * 1024);
+    private static final int LOG_FILES = Integer.getInteger("ecommerce.db.slowQueryLogFiles", 5);
+
+    private static final Metrics.Timer QUERIES = Metrics.timer("jdbc.query");
+    private static final Metrics.Timer UPDATES = Metrics.timer("jdbc.update");
+    private static final Metrics.Timer BATCHES = Metrics.timer("jdbc.batch");
+    private static final LongAdder ROWS_FETCHED = new LongAdder();
+    private static final LongAdder SLOW_STATEMENTS = new LongAdder();
+
+    static {
+        if (ENABLED) {
+            Metrics.gauge("jdbc.rowsFetched", ROWS_FETCHED::sum);
+            Metrics.gauge("jdbc.slowStatements", SLOW_STATEMENTS::sum);
+        }
+    }
+
+    private JdbcTracing() { }
+
+    /**
+     * Returns a connection whose statements are traced.
+     */
+    public static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    Object result = call(connection, method, args);
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return traced(PreparedStatement.class, (Statement) result, (String) args[0]);
+                        case "createStatement":
+                            return traced(Statement.class, (Statement) result, null);
+                        default:
+                            return result;
+                    }
+                });
+    }
+
+    private static <T extends Statement> T traced(Class<T> type, Statement statement, String sql) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                new TracedStatement(statement, sql)));
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void report(Metrics.Timer timer, String sql, List<String> parameters, int batchSize,
+                               long nanos, long rows, boolean failed) {
+        if (failed) {
+            timer.recordError(nanos);
+        } else {
+            timer.record(nanos);
+        }
+        if (nanos < SLOW_QUERY_NANOS) {
+            return;
+        }
+        SLOW_STATEMENTS.increment();
+        StringBuilder entry = new StringBuilder();
+        entry.append(String.format("%.1f ms", nanos / 1_000_000.0));
+        if (failed) {
+            entry.append(", failed");
+        } else if (rows >= 0) {
+            entry.append(", ").append(rows).append(rows == 1 ? " row" : " rows");
+        }
+        if (batchSize > 0) {
+            entry.append(", batch of ").append(batchSize);
+        }
+        entry.append(": ").append(sql == null ? "(unknown statement)" : sql.replaceAll("\\s+", " "));
+        if (!parameters.isEmpty()) {
+            entry.append(" params=").append(parameters);
+        }
+        SlowQueryLog.LOGGER.warning(entry.toString());
+    }
+
+    /**
+     * Times the executes of one statement and records the types of its bound
+     * parameters; a query is reported once its result set is closed.
+     */
+    private static final class TracedStatement implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private final List<String> parameters = new ArrayList<>();
+        private int batchSize;
+        private TracedResultSet open;
+
+        TracedStatement(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(name, method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                // setString(1, value), setNull(2, Types.INTEGER), ...: keep only the type
+                bind((Integer) args[0], name.equals("setNull") || args[1] == null
+                        ? "null" : args[1].getClass().getSimpleName());
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            } else if (name.equals("close")) {
+                finishOpenQuery();
+            }
+            return call(target, method, args);
+        }
+
+        private Object execute(String name, Method method, Object[] args) throws Throwable {
+            finishOpenQuery();
+            String statementSql = args != null && args.length > 0 && args[0] instanceof String
+                    ? (String) args[0] : sql;
+            boolean batch = name.endsWith("Batch");
+            Metrics.Timer timer = batch ? BATCHES : name.equals("executeQuery") ? QUERIES : UPDATES;
+            List<String> bound = List.copyOf(parameters);
+            int batched = batch ? batchSize : 0;
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = call(target, method, args);
+            } catch (Throwable e) {
+                report(timer, statementSql, bound, batched, System.nanoTime() - start, -1, true);
+                throw e;
+            }
+            long nanos = System.nanoTime() - start;
+            if (batch) {
+                batchSize = 0;
+            }
+
+            if (result instanceof ResultSet) {
+                open = new TracedResultSet((ResultSet) result, statementSql, bound, nanos);
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                        new Class<?>[] { ResultSet.class }, open);
+            }
+            report(timer, statementSql, bound, batched, nanos, rowCount(result), false);
+            return result;
+        }
+
+        private void bind(int index, String type) {
+            while (parameters.size() < index) {
+                parameters.add("?");
+            }
+            parameters.set(index - 1, type);
+        }
+
+        private void finishOpenQuery() {
+            if (open != null) {
+                open.finish();
+                open = null;
+            }
+        }
+
+        private static long rowCount(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                return ((Number) result).longValue();
+            }
+            long total = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    total += Math.max(count, 0);
+                }
+                return total;
+            }
+            if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    total += Math.max(count, 0);
+                }
+                return total;
+            }
+            return -1; // execute(): the caller reads the outcome itself
+        }
+    }
+
+    /**
+     * Counts rows and the time spent fetching them.
+     */
+    private static final class TracedResultSet implements InvocationHandler {
+        private final ResultSet target;
+        private final String sql;
+        private final List<String> parameters;
+        private long nanos;
+        private long rows;
+        private boolean finished;
+
+        TracedResultSet(ResultSet target, String sql, List<String> parameters, long executeNanos) {
+            this.target = target;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.nanos = executeNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next": {
+                    long start = System.nanoTime();
+                    Object hasRow = call(target, method, args);
+                    nanos += System.nanoTime() - start;
+                    if ((Boolean) hasRow) {
+                        rows++;
+                    }
+                    return hasRow;
+                }
+                case "close":
+                    finish();
+                    return call(target, method, args);
+                default:
+                    return call(target, method, args);
+            }
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                ROWS_FETCHED.add(rows);
+                report(QUERIES, sql, parameters, 0, nanos, rows, false);
+            }
+        }
+    }
+
+    // Opened on the first slow statement
+    private static final class SlowQueryLog {
+        static final Logger LOGGER = open();
+
+        private static Logger open() {
+            Logger logger = Logger.getLogger("ecommerce.slowQueries");
+            try {
+                Path parent = Path.of(LOG_PATTERN).toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                FileHandler handler = new FileHandler(LOG_PATTERN, LOG_LIMIT_BYTES, LOG_FILES, true);
+                handler.setFormatter(new Formatter() {
+                    @Override
+                    public String format(LogRecord record) {
+                        return String.format("%1$tF %1$tT.%1$tL [%2$s] %3$s%n",
+                                new Date(record.getMillis()), Thread.currentThread().getName(), record.getMessage());
+                    }
+                });
+                logger.addHandler(handler);
+                logger.setUseParentHandlers(false);
+            } catch (IOException e) {
+                System.err.println("Could not open the slow query log " + LOG_PATTERN + ", using the console");
+                e.printStackTrace();
+            }
+            return logger;
+        }
+    }
+}
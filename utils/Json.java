@@ -0,0 +1,310 @@
+package utils;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader and writer, enough for the HTTP API and file imports
+ * without pulling in a library.
+ *
+ * Objects map to LinkedHashMap, arrays to ArrayList, numbers to Long or Double.
+ */
+public final class Json {
+    private Json() { }
+
+    // Writing
+
+    public static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(value, sb);
+        return sb.toString();
+    }
+
+    public static void write(Object value, StringBuilder sb) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            writeString((String) value, sb);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                writeString(String.valueOf(entry.getKey()), sb);
+                sb.append(':');
+                write(entry.getValue(), sb);
+            }
+            sb.append('}');
+        } else if (value instanceof Iterable) {
+            sb.append('[');
+            boolean first = true;
+            for (Object item : (Iterable<?>) value) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                write(item, sb);
+            }
+            sb.append(']');
+        } else {
+            writeString(value.toString(), sb);
+        }
+    }
+
+    private static void writeString(String s, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    // Reading
+
+    public static Object parse(String text) throws IOException {
+        Parser parser = new Parser(new StringReader(text));
+        Object value = parser.readValue();
+        parser.expectEnd();
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) throws IOException {
+        Object value = parse(text);
+        if (!(value instanceof Map)) {
+            throw new IOException("Expected a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Pull parser over a Reader. Besides readValue(), it can walk a top-level array
+     * one element at a time so large files never have to be held in memory.
+     */
+    public static class Parser {
+        private final PushbackReader in;
+        private boolean firstElement;
+
+        public Parser(Reader reader) {
+            this.in = new PushbackReader(reader, 1);
+        }
+
+        public void beginArray() throws IOException {
+            expect('[');
+            firstElement = true;
+        }
+
+        /**
+         * Returns true if the array opened by beginArray() has another element.
+         */
+        public boolean hasNextElement() throws IOException {
+            int c = peek();
+            if (c == ']') {
+                read();
+                return false;
+            }
+            if (!firstElement) {
+                expect(',');
+            }
+            firstElement = false;
+            return true;
+        }
+
+        public Object readValue() throws IOException {
+            int c = peek();
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    readLiteral("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    readLiteral("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    readLiteral("null");
+                    return null;
+                case -1:
+                    throw new IOException("Unexpected end of JSON input");
+                default:
+                    return readNumber();
+            }
+        }
+
+        public void expectEnd() throws IOException {
+            if (peek() != -1) {
+                throw new IOException("Unexpected trailing content after JSON value");
+            }
+        }
+
+        private Map<String, Object> readObject() throws IOException {
+            expect('{');
+            Map<String, Object> map = new LinkedHashMap<>();
+            if (peek() == '}') {
+                read();
+                return map;
+            }
+            do {
+                if (peek() != '"') {
+                    throw new IOException("Expected a string key");
+                }
+                String key = readString();
+                expect(':');
+                map.put(key, readValue());
+            } while (consumeIf(','));
+            expect('}');
+            return map;
+        }
+
+        private List<Object> readArray() throws IOException {
+            expect('[');
+            List<Object> list = new ArrayList<>();
+            if (peek() == ']') {
+                read();
+                return list;
+            }
+            do {
+                list.add(readValue());
+            } while (consumeIf(','));
+            expect(']');
+            return list;
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                int c = in.read();
+                if (c == -1) {
+                    throw new IOException("Unterminated string");
+                }
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c == '\\') {
+                    int e = in.read();
+                    switch (e) {
+                        case 'n' -> sb.append('\n');
+                        case 'r' -> sb.append('\r');
+                        case 't' -> sb.append('\t');
+                        case 'b' -> sb.append('\b');
+                        case 'f' -> sb.append('\f');
+                        case 'u' -> {
+                            char[] hex = new char[4];
+                            for (int i = 0; i < 4; i++) {
+                                int h = in.read();
+                                if (h == -1) {
+                                    throw new IOException("Unterminated unicode escape");
+                                }
+                                hex[i] = (char) h;
+                            }
+                            try {
+                                sb.append((char) Integer.parseInt(new String(hex), 16));
+                            } catch (NumberFormatException ex) {
+                                throw new IOException("Invalid unicode escape: " + new String(hex));
+                            }
+                        }
+                        case -1 -> throw new IOException("Unterminated escape");
+                        default -> sb.append((char) e);
+                    }
+                } else {
+                    sb.append((char) c);
+                }
+            }
+        }
+
+        private Number readNumber() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            int c = peek();
+            while (c != -1 && (Character.isDigit(c) || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E')) {
+                sb.append((char) in.read());
+                c = in.read();
+                if (c != -1) {
+                    in.unread(c);
+                }
+            }
+            String text = sb.toString();
+            if (text.isEmpty()) {
+                throw new IOException("Unexpected character '" + (char) peek() + "'");
+            }
+            try {
+                if (text.contains(".") || text.contains("e") || text.contains("E")) {
+                    return Double.parseDouble(text);
+                }
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid number: " + text);
+            }
+        }
+
+        private void readLiteral(String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                if (in.read() != literal.charAt(i)) {
+                    throw new IOException("Invalid literal, expected " + literal);
+                }
+            }
+        }
+
+        private boolean consumeIf(char expected) throws IOException {
+            if (peek() == expected) {
+                read();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char expected) throws IOException {
+            int c = read();
+            if (c != expected) {
+                throw new IOException("Expected '" + expected + "' but found "
+                        + (c == -1 ? "end of input" : "'" + (char) c + "'"));
+            }
+        }
+
+        // Next non-whitespace character, without consuming it
+        private int peek() throws IOException {
+            int c;
+            do {
+                c = in.read();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+            if (c != -1) {
+                in.unread(c);
+            }
+            return c;
+        }
+
+        private int read() throws IOException {
+            peek();
+            return in.read();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package utils;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Process-wide registry of call timers, cache hit counters and gauges.
+ *
+ * Recording is a few uncontended atomic adds, so timers can sit on hot paths;
+ * callers look their metrics up once and keep them in static fields. Everything
+ * is readable through the JMX MBean ECommerce:type=Metrics and the admin
+ * Performance tab.
+ */
+public final class Metrics {
+    public static final String OBJECT_NAME = "ECommerce:type=Metrics";
+
+    // Sorted by name so related metrics are listed together
+    private static final Map<String, Timer> TIMERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, CacheStats> CACHES = new ConcurrentSkipListMap<>();
+    private static final Map<String, DoubleSupplier> GAUGES = new ConcurrentSkipListMap<>();
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Could not register the metrics MBean");
+            e.printStackTrace();
+        }
+    }
+
+    private Metrics() { }
+
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    public static CacheStats cache(String name) {
+        return CACHES.computeIfAbsent(name, CacheStats::new);
+    }
+
+    /**
+     * Registers a value read on demand, replacing any gauge of the same name.
+     */
+    public static void gauge(String name, DoubleSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    public static List<TimerSnapshot> timers() {
+        List<TimerSnapshot> snapshots = new ArrayList<>(TIMERS.size());
+        for (Timer timer : TIMERS.values()) {
+            snapshots.add(timer.snapshot());
+        }
+        return snapshots;
+    }
+
+    public static List<CacheStats> caches() {
+        return new ArrayList<>(CACHES.values());
+    }
+
+    public static Map<String, Double> gauges() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        GAUGES.forEach((name, gauge) -> values.put(name, gauge.getAsDouble()));
+        return values;
+    }
+
+    /**
+     * Clears every timer and cache counter; gauges are live values and stay.
+     */
+    public static void reset() {
+        TIMERS.values().forEach(Timer::reset);
+        CACHES.values().forEach(CacheStats::reset);
+    }
+
+    /**
+     * Wraps target so every call of an interface method is timed as
+     * prefix.methodName, and counted as an error when it throws.
+     */
+    public static <T> T timed(Class<T> type, T target, String prefix) {
+        Map<Method, Timer> timers = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            timers.put(method, timer(prefix + "." + method.getName()));
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    Timer timer = timers.get(method);
+                    long start = System.nanoTime();
+                    try {
+                        Object result = method.invoke(target, args);
+                        if (timer != null) {
+                            timer.stop(start);
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        if (timer != null) {
+                            timer.failed(start);
+                        }
+                        throw e.getCause();
+                    }
+                }));
+    }
+
+    /**
+     * Call count, error count and latency histogram of one operation.
+     *
+     * Latencies go into log-linear buckets: 8 per power of two, so percentiles are
+     * exact to within 12.5% at any scale with a fixed 4 KB per timer.
+     */
+    public static final class Timer {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+
+        /**
+         * Start time to pass to stop() or failed().
+         */
+        public long start() {
+            return System.nanoTime();
+        }
+
+        public void stop(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public void failed(long startNanos) {
+            errors.increment();
+            stop(startNanos);
+        }
+
+        /**
+         * Records a call that took the given time and failed.
+         */
+        public void recordError(long nanos) {
+            errors.increment();
+            record(nanos);
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            buckets.incrementAndGet(bucketOf(nanos));
+            totalNanos.add(nanos);
+            if (nanos > maxNanos.get()) {
+                maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        public TimerSnapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                count += counts[i];
+            }
+            long max = maxNanos.get();
+            return new TimerSnapshot(name, count, errors.sum(),
+                    count == 0 ? 0 : totalNanos.sum() / (double) count,
+                    percentile(counts, count, 0.50, max), percentile(counts, count, 0.99, max), max);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            totalNanos.reset();
+            errors.reset();
+            maxNanos.set(0);
+        }
+
+        private static int bucketOf(long nanos) {
+            if (nanos < SUB_COUNT) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int mantissa = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return ((exponent - SUB_BITS + 1) << SUB_BITS) | mantissa;
+        }
+
+        // Largest value that falls into the bucket
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_COUNT) {
+                return bucket;
+            }
+            int shift = (bucket >>> SUB_BITS) - 1;
+            long lower = (long) (SUB_COUNT | (bucket & (SUB_COUNT - 1))) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        private static long percentile(long[] counts, long count, double quantile, long max) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * quantile));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Point-in-time view of a timer, in milliseconds.
+     */
+    public static final class TimerSnapshot {
+        private final String name;
+        private final long count;
+        private final long errors;
+        private final double meanNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        TimerSnapshot(String name, long count, long errors, double meanNanos, long p50Nanos, long p99Nanos,
+                      long maxNanos) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getErrors() { return errors; }
+        public double getMeanMillis() { return meanNanos / 1_000_000.0; }
+        public double getP50Millis() { return p50Nanos / 1_000_000.0; }
+        public double getP99Millis() { return p99Nanos / 1_000_000.0; }
+        public double getMaxMillis() { return maxNanos / 1_000_000.0; }
+
+        @Override
+        public String toString() {
+            return String.format("%s count=%d errors=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                    name, count, errors, getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis());
+        }
+    }
+
+    /**
+     * Hits, misses and evictions of one cache.
+     */
+    public static final class CacheStats {
+        private final String name;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        private CacheStats(String name) {
+            this.name = name;
+        }
+
+        public void hit() { hits.increment(); }
+        public void miss() { misses.increment(); }
+        public void evicted() { evictions.increment(); }
+
+        public String getName() { return name; }
+        public long getHits() { return hits.sum(); }
+        public long getMisses() { return misses.sum(); }
+        public long getEvictions() { return evictions.sum(); }
+
+        /**
+         * Share of lookups that hit, 0 to 1, or 0 before the first lookup.
+         */
+        public double getHitRatio() {
+            long h = hits.sum();
+            long total = h + misses.sum();
+            return total == 0 ? 0 : h / (double) total;
+        }
+
+        void reset() {
+            hits.reset();
+            misses.reset();
+            evictions.reset();
+        }
+    }
+
+    /**
+     * JMX view of the registry.
+     */
+    public interface MetricsMXBean {
+        List<TimerSnapshot> getTimers();
+
+        Map<String, Double> getCacheHitRatios();
+
+        Map<String, Double> getGauges();
+
+        void reset();
+    }
+
+    private static final class MBean implements MetricsMXBean {
+        @Override
+        public List<TimerSnapshot> getTimers() {
+            return timers();
+        }
+
+        @Override
+        public Map<String, Double> getCacheHitRatios() {
+            Map<String, Double> ratios = new LinkedHashMap<>();
+            for (CacheStats cache : CACHES.values()) {
+                ratios.put(cache.getName(), cache.getHitRatio());
+            }
+            return ratios;
+        }
+
+        @Override
+        public Map<String, Double> getGauges() {
+            return gauges();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
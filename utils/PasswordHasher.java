@@ -0,0 +1,70 @@
+package utils;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted PBKDF2 password hashes, stored as pbkdf2$iterations$salt$hash.
+ *
+ * Accounts created before hashing still hold their plain password; verify()
+ * accepts those and needsRehash() tells the caller to replace them.
+ */
+public final class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2$";
+    // Each check costs tens of milliseconds of CPU, which is the point
+    private static final int ITERATIONS = Integer.getInteger("ecommerce.auth.pbkdf2Iterations", 120_000);
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHasher() { }
+
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return PREFIX + ITERATIONS + "$" + base64.encodeToString(salt)
+                + "$" + base64.encodeToString(pbkdf2(password, salt, ITERATIONS));
+    }
+
+    public static boolean verify(String password, String stored) {
+        String[] parts = stored.startsWith(PREFIX) ? stored.split("\\$") : null;
+        if (parts == null || parts.length != 4) {
+            // Legacy plain-text password
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            Base64.Decoder base64 = Base64.getDecoder();
+            byte[] expected = base64.decode(parts[3]);
+            byte[] actual = pbkdf2(password, base64.decode(parts[2]), Integer.parseInt(parts[1]));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false; // Corrupt hash, including a bad iteration count
+        }
+    }
+
+    /**
+     * True for plain-text passwords and hashes made with other settings.
+     */
+    public static boolean needsRehash(String stored) {
+        return !stored.startsWith(PREFIX + ITERATIONS + "$");
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
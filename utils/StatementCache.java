@@ -0,0 +1,153 @@
+package utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prepared statements of one physical connection, kept open between borrowers
+ * and keyed by their SQL text.
+ *
+ * prepareStatement() hands out a cached statement when an idle one exists, so a
+ * repeated call costs neither a client-side parse nor, with server-side prepares,
+ * a server round trip to parse and plan. Closing the statement puts it back. A
+ * statement is taken out of the cache while in use, so two open statements never
+ * share one; beyond the capacity the least recently used is closed.
+ */
+class StatementCache {
+    private static final Metrics.CacheStats STATS = Metrics.cache("cache.statements");
+
+    private final Connection physical;
+    private final int capacity;
+    // Idle statements, least recently used first
+    private final Map<String, PreparedStatement> idle = new LinkedHashMap<>(32, 0.75f, true);
+
+    StatementCache(Connection physical, int capacity) {
+        this.physical = physical;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Serves a Connection.prepareStatement call; variants other than SQL plus int
+     * options (column index or name arrays) are prepared without caching.
+     */
+    PreparedStatement prepare(Method method, Object[] args) throws Throwable {
+        String key = keyOf(args);
+        if (key == null) {
+            return (PreparedStatement) invoke(physical, method, args);
+        }
+
+        PreparedStatement statement;
+        synchronized (this) {
+            statement = idle.remove(key);
+        }
+        if (statement != null) {
+            STATS.hit();
+        } else {
+            STATS.miss();
+            statement = (PreparedStatement) invoke(physical, method, args);
+        }
+        return handle(key, statement);
+    }
+
+    private PreparedStatement handle(String key, PreparedStatement statement) {
+        boolean[] closed = new boolean[1];
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!closed[0]) {
+                                closed[0] = true;
+                                giveBack(key, statement);
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed[0] || statement.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    if (closed[0]) {
+                        throw new SQLException("Statement is closed");
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private void giveBack(String key, PreparedStatement statement) {
+        try {
+            // Leave nothing of this use behind for the next one: no open rows, no
+            // parameters, and the JDBC defaults for the settings a borrower may change
+            ResultSet open = statement.getResultSet();
+            if (open != null) {
+                open.close();
+            }
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+            statement.setFetchSize(0);
+            statement.setMaxRows(0);
+            statement.setQueryTimeout(0);
+        } catch (SQLException e) {
+            // Not known to be clean, so it is not reused
+            closeQuietly(statement);
+            return;
+        }
+
+        PreparedStatement evicted = null;
+        synchronized (this) {
+            if (idle.containsKey(key)) {
+                // Another copy was opened while this one was in use
+                evicted = statement;
+            } else {
+                idle.put(key, statement);
+                if (idle.size() > capacity) {
+                    Iterator<PreparedStatement> eldest = idle.values().iterator();
+                    evicted = eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        if (evicted != null) {
+            STATS.evicted();
+            closeQuietly(evicted);
+        }
+    }
+
+    private static String keyOf(Object[] args) {
+        StringBuilder key = new StringBuilder((String) args[0]);
+        for (int i = 1; i < args.length; i++) {
+            if (!(args[i] instanceof Integer)) {
+                return null;
+            }
+            key.append('\u0000').append(args[i]);
+        }
+        return key.toString();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // The connection is probably broken and will be discarded
+        }
+    }
+}
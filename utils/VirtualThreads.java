@@ -0,0 +1,44 @@
+package utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates one-thread-per-task executors backed by virtual threads when the
+ * runtime has them (JDK 21+), and by a cached pool of daemon threads otherwise.
+ */
+public final class VirtualThreads {
+    private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+    private VirtualThreads() { }
+
+    public static ExecutorService newPerTaskExecutor(String namePrefix) {
+        if (NEW_VIRTUAL_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Fall through to platform threads
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static boolean isAvailable() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    private static Method findVirtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}